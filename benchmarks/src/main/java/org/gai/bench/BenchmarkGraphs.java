@@ -0,0 +1,56 @@
+package org.gai.bench;
+
+import org.gai.utils.CsrGraph;
+import org.gai.utils.GraphGenUtil;
+import org.gai.utils.RandomUtils;
+import org.jgrapht.Graph;
+import org.jgrapht.generate.GraphGenerator;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.util.SupplierUtil;
+
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Inputs of the benchmarks, drawn from the generators of GraphGenUtil with a fixed seed
+ * so that every run of a benchmark sees the same graphs
+ */
+public class BenchmarkGraphs {
+    public static final long SEED = 42L;
+    // graphs cycled through by a benchmark, so that one graph does not stay in the caches
+    public static final int NUM_OF_GRAPHS = 64;
+
+    public static Graph<Integer, DefaultEdge> newGraph() {
+        return GraphTypeBuilder
+                .<Integer, DefaultEdge>undirected()
+                .allowingMultipleEdges(false)
+                .allowingSelfLoops(false)
+                .edgeClass(DefaultEdge.class)
+                .weighted(false)
+                .vertexSupplier(SupplierUtil.createIntegerSupplier())
+                .edgeSupplier(SupplierUtil.createDefaultEdgeSupplier())
+                .buildGraph();
+    }
+
+    public static Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> getGenerator(int n, String generatorName) {
+        Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> generator = GraphGenUtil.getGraphGenerators(n).get(generatorName);
+        if (generator == null)
+            throw new IllegalArgumentException("Unknown generator: " + generatorName);
+        return generator;
+    }
+
+    /**
+     * Graphs 0 .. NUM_OF_GRAPHS - 1 of the given generator on n vertices
+     */
+    public static CsrGraph[] generate(int n, String generatorName) {
+        Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> generator = getGenerator(n, generatorName);
+        CsrGraph[] graphs = new CsrGraph[NUM_OF_GRAPHS];
+        for (int i = 0; i < NUM_OF_GRAPHS; i++) {
+            Graph<Integer, DefaultEdge> g = newGraph();
+            generator.apply(RandomUtils.getRandom(SEED, n, generatorName, i)).generateGraph(g);
+            graphs[i] = CsrGraph.fromGraph(g);
+        }
+        return graphs;
+    }
+}
@@ -0,0 +1,101 @@
+package org.gai.bench;
+
+import org.gai.utils.CompressionUtils;
+import org.gai.utils.CsrGraph;
+import org.gai.utils.FileUtils;
+import org.jgrapht.alg.util.Pair;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing the CSV file of a graph with FileUtils, plain or gzipped, in a temporary folder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBenchmark {
+    @Param({"false", "true"})
+    public boolean compressed;
+
+    @Param({"ERP"})
+    public String generatorName;
+
+    @Param({"10", "20"})
+    public int n;
+
+    private Path folder;
+    private CsrGraph[] graphs;
+    private Set<Integer>[] vertexSets;
+    private List<Pair<Integer, Integer>>[] edgeLists;
+    private String[] files;
+    private int next;
+
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setup() throws IOException {
+        CompressionUtils.setCompressOutput(compressed);
+        folder = Files.createTempDirectory("graphgen-bench");
+        graphs = BenchmarkGraphs.generate(n, generatorName);
+        vertexSets = new Set[graphs.length];
+        edgeLists = new List[graphs.length];
+        files = new String[graphs.length];
+        for (int i = 0; i < graphs.length; i++) {
+            CsrGraph g = graphs[i];
+            vertexSets[i] = new LinkedHashSet<>();
+            for (int v = 0; v < g.getNumOfNodes(); v++)
+                vertexSets[i].add(v);
+            edgeLists[i] = new ArrayList<>(g.getNumOfEdges());
+            for (int e = 0; e < g.getNumOfEdges(); e++)
+                edgeLists[i].add(Pair.of(g.getEdgeSource(e), g.getEdgeTarget(e)));
+            String file = folder.resolve(String.format("graph_%06d.csv", i)).toString();
+            FileUtils.writeGraph(new File(file), generatorName, vertexSets[i], edgeLists[i], null, null);
+            files[i] = CompressionUtils.getOutputName(file);
+        }
+        next = 0;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        CompressionUtils.setCompressOutput(false);
+        try (var paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public void writeGraph() {
+        int i = next++ % graphs.length;
+        FileUtils.writeGraph(new File(folder.resolve(String.format("graph_%06d.csv", i)).toString()), generatorName, vertexSets[i], edgeLists[i], null, null);
+    }
+
+    @Benchmark
+    public Pair<Set<Integer>, List<Pair<Integer, Integer>>> readGraph() {
+        return FileUtils.readGraph(files[next++ % files.length]);
+    }
+
+    @Benchmark
+    public CsrGraph readCsrGraph() {
+        return FileUtils.readCsrGraph(files[next++ % files.length]);
+    }
+
+    @Benchmark
+    public String serializeGraph() {
+        return FileUtils.serializeGraph(generatorName, graphs[next++ % graphs.length], null, null);
+    }
+}
@@ -0,0 +1,45 @@
+package org.gai.bench;
+
+import org.gai.utils.CsrGraph;
+import org.gai.utils.RandomUtils;
+import org.jgrapht.Graph;
+import org.jgrapht.generate.GraphGenerator;
+import org.jgrapht.graph.DefaultEdge;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * One graph of a generator, as generated by GraphGenUtil: draw the parameters, generate, convert to CsrGraph
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+    @Param({"EG", "ERM", "ERP", "BAG", "BAF", "SF", "Complete", "Bipartite-ERM", "Bipartite-ERP", "Star", "Path", "SBM"})
+    public String generatorName;
+
+    @Param({"7", "12", "20"})
+    public int n;
+
+    private Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> generator;
+    private int graphId;
+
+    @Setup
+    public void setup() {
+        generator = BenchmarkGraphs.getGenerator(n, generatorName);
+        graphId = 0;
+    }
+
+    @Benchmark
+    public CsrGraph generate() {
+        Graph<Integer, DefaultEdge> g = BenchmarkGraphs.newGraph();
+        generator.apply(RandomUtils.getRandom(BenchmarkGraphs.SEED, n, generatorName, graphId++)).generateGraph(g);
+        return CsrGraph.fromGraph(g);
+    }
+}
@@ -0,0 +1,41 @@
+package org.gai.bench;
+
+import org.gai.utils.CsrGraph;
+import org.gai.utils.GraphPrompt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The graph serializations of the prompts, GraphPrompt.serializeGraph
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBenchmark {
+    @Param({"Adjacency", "FullAdjacency", "Incident"})
+    public String serialization;
+
+    @Param({"ERP"})
+    public String generatorName;
+
+    @Param({"10", "20"})
+    public int n;
+
+    private CsrGraph[] graphs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        graphs = BenchmarkGraphs.generate(n, generatorName);
+        next = 0;
+    }
+
+    @Benchmark
+    public String serialize() {
+        return GraphPrompt.serializeGraph(graphs[next++ % graphs.length], serialization);
+    }
+}
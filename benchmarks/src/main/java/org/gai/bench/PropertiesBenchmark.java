@@ -0,0 +1,73 @@
+package org.gai.bench;
+
+import com.google.gson.JsonObject;
+import org.gai.utils.CsrGraph;
+import org.gai.utils.GraphProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Each GraphProperties.add* method on its own, over graphs of one generator
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertiesBenchmark {
+    private static final Map<String, Consumer<GraphProperties>> PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        PROPERTIES.put("NodeCount", GraphProperties::addNodeCount);
+        PROPERTIES.put("EdgeCount", GraphProperties::addEdgeCount);
+        PROPERTIES.put("EdgeAbsence", GraphProperties::addEdgeAbsence);
+        PROPERTIES.put("ConnectivityInfo", GraphProperties::addConnectivityInfo);
+        PROPERTIES.put("SpanningTree", GraphProperties::addSpanningTree);
+        PROPERTIES.put("BFSOrder", GraphProperties::addBFSOrder);
+        PROPERTIES.put("DFSOrder", GraphProperties::addDFSOrder);
+        PROPERTIES.put("Cycle", GraphProperties::addCycle);
+        PROPERTIES.put("TopologicalSort", GraphProperties::addTopologicalSort);
+        PROPERTIES.put("Diameter", GraphProperties::addDiameter);
+        PROPERTIES.put("Radius", GraphProperties::addRadius);
+        PROPERTIES.put("Girth", GraphProperties::addGirth);
+        PROPERTIES.put("NumTriangles", GraphProperties::addNumTriangles);
+        PROPERTIES.put("ShortestPath", GraphProperties::addShortestPath);
+        PROPERTIES.put("MaxFlow", GraphProperties::addMaxFlow);
+        PROPERTIES.put("HamiltonPath", GraphProperties::addHamiltonPath);
+    }
+
+    @Param({"NodeCount", "EdgeCount", "EdgeAbsence", "ConnectivityInfo", "SpanningTree", "BFSOrder", "DFSOrder",
+            "Cycle", "TopologicalSort", "Diameter", "Radius", "Girth", "NumTriangles", "ShortestPath", "MaxFlow", "HamiltonPath"})
+    public String property;
+
+    @Param({"ERP", "BAG", "SBM"})
+    public String generatorName;
+
+    @Param({"10", "20"})
+    public int n;
+
+    private Consumer<GraphProperties> add;
+    private CsrGraph[] graphs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        add = PROPERTIES.get(property);
+        if (add == null)
+            throw new IllegalArgumentException("Unknown property: " + property);
+        graphs = BenchmarkGraphs.generate(n, generatorName);
+        next = 0;
+    }
+
+    @Benchmark
+    public JsonObject compute() {
+        JsonObject properties = new JsonObject();
+        add.accept(new GraphProperties(graphs[next++ % graphs.length], properties));
+        return properties;
+    }
+}
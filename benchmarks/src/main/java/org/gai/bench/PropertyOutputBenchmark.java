@@ -0,0 +1,61 @@
+package org.gai.bench;
+
+import com.google.gson.JsonObject;
+import org.gai.utils.CsrGraph;
+import org.gai.utils.GraphProperties;
+import org.gai.utils.PropertyWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One properties line of the default properties per graph: a JsonObject tree serialized afterwards (tree),
+ * or streamed by GraphProperties.writeJsonLine in the legacy or the compact encoding
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyOutputBenchmark {
+    @Param({"tree", "legacy", "compact"})
+    public String output;
+
+    @Param({"ERP", "BAG", "SBM"})
+    public String generatorName;
+
+    @Param({"10", "20"})
+    public int n;
+
+    private CsrGraph[] graphs;
+    private int next;
+    private final CharArrayWriter buffer = new CharArrayWriter();
+
+    @Setup
+    public void setup() {
+        if (!output.equals("tree") && !output.equals("legacy") && !output.equals("compact"))
+            throw new IllegalArgumentException("Unknown output: " + output);
+        graphs = BenchmarkGraphs.generate(n, generatorName);
+        next = 0;
+    }
+
+    @Benchmark
+    public int writeLine() throws IOException {
+        CsrGraph g = graphs[next++ % graphs.length];
+        buffer.reset();
+        if (output.equals("tree")) {
+            JsonObject properties = new JsonObject();
+            properties.addProperty("graph", "g");
+            new GraphProperties(g, properties).computeAll(GraphProperties.PROPERTIES);
+            buffer.write(properties + "\n");
+        } else {
+            PropertyWriter.Encoding encoding = output.equals("legacy") ? PropertyWriter.Encoding.LEGACY : PropertyWriter.Encoding.COMPACT;
+            GraphProperties.writeJsonLine(buffer, "g", g, GraphProperties.PROPERTIES, encoding, new SplittableRandom(next));
+        }
+        return buffer.size();
+    }
+}
@@ -0,0 +1,11 @@
+package org.gai.generate;
+
+import java.io.IOException;
+
+/**
+ * Receives the edges of a StreamingGraphGenerator one at a time, e.g., to write them straight to a file
+ */
+@FunctionalInterface
+public interface EdgeSink {
+    void addEdge(int u, int v) throws IOException;
+}
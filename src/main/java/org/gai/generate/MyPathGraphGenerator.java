@@ -24,6 +24,10 @@ public class MyPathGraphGenerator implements GraphGenerator<Integer, DefaultEdge
         }
     }
 
+    public MyPathGraphGenerator(int n, long seed) {
+        this(n, new Random(seed));
+    }
+
     @Override
     public void generateGraph(Graph<Integer, DefaultEdge> graph, Map<String, Integer> map) {
         List<Integer> integers = new ArrayList<>();
@@ -0,0 +1,112 @@
+package org.gai.generate;
+
+import org.jgrapht.Graph;
+import org.jgrapht.generate.GraphGenerator;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.*;
+
+/**
+ * Stochastic block model: the vertices 0, 1, ..., n - 1 are split into consecutive blocks,
+ * and two vertices of blocks i and j are connected with probability probabilities[i][j].
+ * <p>
+ * The pairs of every block pair are visited with geometric skips (Batagelj and Brandes, 2005),
+ * so the time is linear in the number of vertices, block pairs and edges instead of n^2.
+ */
+public class MySbmGraphGenerator implements GraphGenerator<Integer, DefaultEdge, Integer> {
+    private final int[] blockSizes;
+    private final double[][] probabilities;
+    private final Random random;
+
+    private final List<Set<Integer>> blocks;
+
+    public MySbmGraphGenerator(int[] blockSizes, double[][] probabilities, Random random) {
+        if (blockSizes.length == 0)
+            throw new IllegalArgumentException("Number of blocks must be positive");
+        if (probabilities.length != blockSizes.length)
+            throw new IllegalArgumentException("Probabilities must be a " + blockSizes.length + " x " + blockSizes.length + " matrix");
+        for (int i = 0; i < blockSizes.length; i++) {
+            if (blockSizes[i] < 1)
+                throw new IllegalArgumentException("Block sizes must be positive");
+            if (probabilities[i].length != blockSizes.length)
+                throw new IllegalArgumentException("Probabilities must be a " + blockSizes.length + " x " + blockSizes.length + " matrix");
+            for (int j = 0; j < blockSizes.length; j++) {
+                if (probabilities[i][j] < 0 || probabilities[i][j] > 1)
+                    throw new IllegalArgumentException("Probabilities must be in [0, 1]");
+                if (probabilities[i][j] != probabilities[j][i])
+                    throw new IllegalArgumentException("Probabilities must be symmetric");
+            }
+        }
+        if (random == null)
+            throw new IllegalArgumentException("Random must not be null");
+
+        this.blockSizes = blockSizes.clone();
+        this.probabilities = probabilities;
+        this.random = random;
+
+        this.blocks = new ArrayList<>(blockSizes.length);
+        int first = 0;
+        for (int size : blockSizes) {
+            Set<Integer> block = new LinkedHashSet<>();
+            for (int v = first; v < first + size; v++)
+                block.add(v);
+            blocks.add(Collections.unmodifiableSet(block));
+            first += size;
+        }
+    }
+
+    public MySbmGraphGenerator(int[] blockSizes, double[][] probabilities, long seed) {
+        this(blockSizes, probabilities, new Random(seed));
+    }
+
+    /**
+     * The vertices of every block, in block order
+     */
+    public List<Set<Integer>> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    @Override
+    public void generateGraph(Graph<Integer, DefaultEdge> graph, Map<String, Integer> map) {
+        int[] firsts = new int[blockSizes.length];
+        int n = 0;
+        for (int i = 0; i < blockSizes.length; i++) {
+            firsts[i] = n;
+            n += blockSizes[i];
+        }
+        for (int v = 0; v < n; v++)
+            graph.addVertex(v);
+
+        for (int i = 0; i < blockSizes.length; i++) {
+            // pairs (w, v), w < v, inside block i, the pair of index k = v(v - 1) / 2 + w
+            long numOfPairs = (long) blockSizes[i] * (blockSizes[i] - 1) / 2;
+            int v = 1;
+            long base = 0;
+            for (long k = nextPair(-1, numOfPairs, probabilities[i][i]); k < numOfPairs; k = nextPair(k, numOfPairs, probabilities[i][i])) {
+                while (k >= base + v) {
+                    base += v;
+                    v++;
+                }
+                graph.addEdge(firsts[i] + (int) (k - base), firsts[i] + v);
+            }
+
+            for (int j = i + 1; j < blockSizes.length; j++) {
+                // pairs (u, w) of blocks i and j, the pair of index k = u * |block j| + w
+                numOfPairs = (long) blockSizes[i] * blockSizes[j];
+                for (long k = nextPair(-1, numOfPairs, probabilities[i][j]); k < numOfPairs; k = nextPair(k, numOfPairs, probabilities[i][j]))
+                    graph.addEdge(firsts[i] + (int) (k / blockSizes[j]), firsts[j] + (int) (k % blockSizes[j]));
+            }
+        }
+    }
+
+    // the index of the next pair after k that is an edge, numOfPairs if there is none
+    private long nextPair(long k, long numOfPairs, double p) {
+        if (p == 0)
+            return numOfPairs;
+        if (p == 1)
+            return k + 1;
+        // 1 - nextDouble() is in (0, 1]
+        double skip = Math.floor(Math.log(1 - random.nextDouble()) / Math.log1p(-p));
+        return skip >= numOfPairs - k - 1 ? numOfPairs : k + 1 + (long) skip;
+    }
+}
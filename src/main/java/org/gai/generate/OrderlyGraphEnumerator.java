@@ -0,0 +1,63 @@
+package org.gai.generate;
+
+import org.gai.utils.CanonicalForm;
+
+import java.util.function.Consumer;
+
+/**
+ * Enumerates one graph per isomorphism class of the graphs on n vertices by orderly generation (Read, Faradzev).
+ * <p>
+ * Only canonical graphs (see CanonicalForm) are emitted. Removing the last edge, in code order, of a canonical graph
+ * gives a canonical graph again, so every canonical graph is reached exactly once by starting from the empty graph
+ * and adding edges after the last one, keeping only the canonical results.
+ */
+public class OrderlyGraphEnumerator {
+
+    private final int n;
+    private final int[] pairFirst, pairSecond; // the vertex pairs in code order
+    private final int[] adjacency;
+    private final CanonicalForm canonicalForm;
+
+    public OrderlyGraphEnumerator(int n) {
+        this.n = n;
+        this.canonicalForm = new CanonicalForm(n);
+        this.adjacency = new int[n];
+
+        int numOfPairs = n * (n - 1) / 2;
+        this.pairFirst = new int[numOfPairs];
+        this.pairSecond = new int[numOfPairs];
+        int p = 0;
+        for (int j = 1; j < n; j++) {
+            for (int i = 0; i < j; i++) {
+                pairFirst[p] = i;
+                pairSecond[p] = j;
+                p++;
+            }
+        }
+    }
+
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    /**
+     * Passes every canonical graph, as adjacency bitmasks, to the consumer.
+     * The array is reused between calls, consumers must copy it if they keep it.
+     */
+    public void enumerate(Consumer<int[]> consumer) {
+        extend(-1, consumer);
+    }
+
+    private void extend(int lastPair, Consumer<int[]> consumer) {
+        consumer.accept(adjacency);
+        for (int p = lastPair + 1; p < pairFirst.length; p++) {
+            int u = pairFirst[p], v = pairSecond[p];
+            adjacency[u] |= 1 << v;
+            adjacency[v] |= 1 << u;
+            if (canonicalForm.isCanonical(adjacency))
+                extend(p, consumer);
+            adjacency[u] &= ~(1 << v);
+            adjacency[v] &= ~(1 << u);
+        }
+    }
+}
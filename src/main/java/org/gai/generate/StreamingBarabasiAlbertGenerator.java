@@ -0,0 +1,81 @@
+package org.gai.generate;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * The Barabasi-Albert model of BarabasiAlbertGraphGenerator: a complete graph on m0 vertices,
+ * then every new vertex is attached to m distinct earlier vertices chosen with probability proportional to their degree.
+ * A vertex of degree d appears d times in the list of edge endpoints, so a uniform endpoint is a preferential choice
+ * (Batagelj and Brandes, 2005), which takes two ints per edge and O(m) time per new vertex in expectation.
+ */
+public class StreamingBarabasiAlbertGenerator implements StreamingGraphGenerator {
+    private final int m0;
+    private final int m;
+    private final int n;
+    private final SplittableRandom random;
+
+    public StreamingBarabasiAlbertGenerator(int m0, int m, int n, SplittableRandom random) {
+        if (m0 < 1)
+            throw new IllegalArgumentException("Invalid initial nodes (" + m0 + " < 1)");
+        if (m < 1 || m > m0)
+            throw new IllegalArgumentException("Invalid edges per node (" + m + " not in [1, " + m0 + "])");
+        if (n < m0)
+            throw new IllegalArgumentException("Total number of nodes must be at least equal to the initial set");
+        this.m0 = m0;
+        this.m = m;
+        this.n = n;
+        this.random = random;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return (long) m0 * (m0 - 1) / 2 + (long) (n - m0) * m;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        long numOfEndpoints = 2 * getNumOfEdges();
+        if (numOfEndpoints > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many edges: " + getNumOfEdges());
+        int[] endpoints = new int[(int) numOfEndpoints];
+        int size = 0;
+
+        for (int v = 1; v < m0; v++) {
+            for (int w = 0; w < v; w++) {
+                sink.addEdge(w, v);
+                endpoints[size++] = w;
+                endpoints[size++] = v;
+            }
+        }
+
+        int[] targets = new int[m];
+        for (int v = m0; v < n; v++) {
+            int sizeBefore = size;
+            for (int i = 0; i < m; i++) {
+                int target;
+                do {
+                    // a single initial vertex has no edges yet
+                    target = sizeBefore == 0 ? random.nextInt(v) : endpoints[random.nextInt(sizeBefore)];
+                } while (contains(targets, i, target));
+                targets[i] = target;
+                sink.addEdge(target, v);
+                endpoints[size++] = target;
+                endpoints[size++] = v;
+            }
+        }
+    }
+
+    static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+package org.gai.generate;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * G(n, m) that draws the m edges as a sorted sample of the n(n - 1) / 2 pairs, with Vitter's sequential sampling
+ * (Algorithm D, ACM TOMS 13(1), 1987), in O(n + m) expected time and constant memory.
+ * The pair of index k is (w, v), w < v, with k = v(v - 1) / 2 + w, and edges are emitted in increasing index order.
+ */
+public class StreamingGnmGenerator implements StreamingGraphGenerator {
+    // Algorithm D switches to Algorithm A once the sample is more than 1 / ALPHA_INVERSE of the remaining population
+    private static final long ALPHA_INVERSE = 13;
+
+    private final int n;
+    private final long m;
+    private final SplittableRandom random;
+
+    // the pair of the last emitted index
+    private long current;
+    private long base;
+    private int v;
+
+    public StreamingGnmGenerator(int n, long m, SplittableRandom random) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of vertices must be non-negative");
+        if (m < 0 || m > (long) n * (n - 1) / 2)
+            throw new IllegalArgumentException("Number of edges must be in [0, n(n - 1) / 2]");
+        this.n = n;
+        this.m = m;
+        this.random = random;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return m;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        current = -1;
+        base = 0;
+        v = 1;
+        if (m > 0)
+            sampleD(m, (long) n * (n - 1) / 2, sink);
+    }
+
+    // skips s records, then selects the next one
+    private void select(long s, EdgeSink sink) throws IOException {
+        current += s + 1;
+        while (current >= base + v) {
+            base += v;
+            v++;
+        }
+        sink.addEdge((int) (current - base), v);
+    }
+
+    // Algorithm D: selects k of the next bigN records
+    private void sampleD(long k, long bigN, EdgeSink sink) throws IOException {
+        double kReal = k, kInv = 1.0 / kReal, bigNReal = bigN;
+        double vPrime = Math.exp(Math.log(nextOpenDouble()) * kInv);
+        long qu1 = bigN - k + 1;
+        double qu1Real = bigNReal - kReal + 1;
+        long threshold = ALPHA_INVERSE * k;
+
+        // threshold is ALPHA_INVERSE * k
+        while (k > 1 && threshold < bigN) {
+            double kMin1Inv = 1.0 / (kReal - 1);
+            long s;
+            while (true) {
+                double x;
+                while (true) {
+                    x = bigNReal * (1.0 - vPrime);
+                    s = (long) x;
+                    if (s < qu1)
+                        break;
+                    vPrime = Math.exp(Math.log(nextOpenDouble()) * kInv);
+                }
+                double u = nextOpenDouble();
+                double negSReal = -s;
+                double y1 = Math.exp(Math.log(u * bigNReal / qu1Real) * kMin1Inv);
+                vPrime = y1 * (1.0 - x / bigNReal) * (qu1Real / (negSReal + qu1Real));
+                if (vPrime <= 1.0)
+                    break; // accepted by the squeeze test
+
+                double y2 = 1.0, top = bigNReal - 1, bottom;
+                long limit;
+                if (k - 1 > s) {
+                    bottom = bigNReal - kReal;
+                    limit = bigN - s;
+                } else {
+                    bottom = bigNReal + negSReal - 1;
+                    limit = qu1;
+                }
+                for (long t = bigN - 1; t >= limit; t--) {
+                    y2 = y2 * top / bottom;
+                    top--;
+                    bottom--;
+                }
+                if (bigNReal / (bigNReal - x) >= y1 * Math.exp(Math.log(y2) * kMin1Inv)) {
+                    vPrime = Math.exp(Math.log(nextOpenDouble()) * kMin1Inv);
+                    break; // accepted
+                }
+                vPrime = Math.exp(Math.log(nextOpenDouble()) * kInv);
+            }
+            select(s, sink);
+            bigN = bigN - s - 1;
+            bigNReal = bigNReal - s - 1;
+            k--;
+            kReal--;
+            kInv = kMin1Inv;
+            qu1 -= s;
+            qu1Real -= s;
+            threshold -= ALPHA_INVERSE;
+        }
+
+        if (k > 1) {
+            sampleA(k, bigN, sink);
+        } else {
+            select((long) (bigN * vPrime), sink);
+        }
+    }
+
+    // Algorithm A: selects k of the next bigN records, in O(bigN) time
+    private void sampleA(long k, long bigN, EdgeSink sink) throws IOException {
+        double top = bigN - k, bigNReal = bigN;
+        while (k >= 2) {
+            double u = random.nextDouble();
+            long s = 0;
+            double quot = top / bigNReal;
+            while (quot > u) {
+                s++;
+                top--;
+                bigNReal--;
+                quot = quot * top / bigNReal;
+            }
+            select(s, sink);
+            bigNReal--;
+            k--;
+        }
+        select((long) (Math.round(bigNReal) * random.nextDouble()), sink);
+    }
+
+    // uniform in (0, 1)
+    private double nextOpenDouble() {
+        double u = random.nextDouble();
+        while (u == 0.0)
+            u = random.nextDouble();
+        return u;
+    }
+}
@@ -0,0 +1,61 @@
+package org.gai.generate;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * G(n, p) by geometric skip sampling (Batagelj and Brandes, 2005): instead of testing all n(n - 1) / 2 pairs,
+ * the number of pairs skipped before the next edge is drawn from the geometric distribution, in O(n + m) time.
+ * Edges (w, v), w < v, are emitted in increasing order of v and then of w.
+ */
+public class StreamingGnpGenerator implements StreamingGraphGenerator {
+    private final int n;
+    private final double p;
+    private final SplittableRandom random;
+
+    public StreamingGnpGenerator(int n, double p, SplittableRandom random) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of vertices must be non-negative");
+        if (p < 0 || p > 1)
+            throw new IllegalArgumentException("Probability must be in [0, 1]");
+        this.n = n;
+        this.p = p;
+        this.random = random;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return p == 0 ? 0 : p == 1 ? (long) n * (n - 1) / 2 : -1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        if (p == 0)
+            return;
+        if (p == 1) {
+            for (int v = 1; v < n; v++) {
+                for (int w = 0; w < v; w++)
+                    sink.addEdge(w, v);
+            }
+            return;
+        }
+
+        double logQ = Math.log1p(-p);
+        long v = 1, w = -1;
+        while (v < n) {
+            // 1 - nextDouble() is in (0, 1]
+            w += 1 + (long) Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+            while (w >= v && v < n) {
+                w -= v;
+                v++;
+            }
+            if (v < n)
+                sink.addEdge((int) w, (int) v);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.gai.generate;
+
+import java.io.IOException;
+
+/**
+ * Generates a graph on the vertices 0, 1, ..., n - 1 by passing its edges to a sink, without building the graph,
+ * so that graphs with millions of vertices can be generated in memory independent of (or linear in) the number of edges.
+ * Each edge is emitted once, without self loops or multiple edges.
+ */
+public interface StreamingGraphGenerator {
+    int getNumOfNodes();
+
+    /**
+     * The number of edges that generate() emits, or -1 if it is only known afterwards
+     */
+    long getNumOfEdges();
+
+    void generate(EdgeSink sink) throws IOException;
+}
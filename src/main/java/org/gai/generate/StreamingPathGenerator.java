@@ -0,0 +1,44 @@
+package org.gai.generate;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Streaming counterpart of MyPathGraphGenerator, a path through a random permutation of the vertices
+ */
+public class StreamingPathGenerator implements StreamingGraphGenerator {
+    private final int n;
+    private final SplittableRandom random;
+
+    public StreamingPathGenerator(int n, SplittableRandom random) {
+        if (n < 2)
+            throw new IllegalArgumentException("Number of vertices must be greater than 2");
+        this.n = n;
+        this.random = random;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return n - 1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+            order[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        for (int i = 0; i < n - 1; i++)
+            sink.addEdge(order[i], order[i + 1]);
+    }
+}
@@ -0,0 +1,78 @@
+package org.gai.generate;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * Streaming counterpart of ScaleFreeGraphGenerator, which attaches every new vertex to each earlier vertex
+ * with probability degree / sum of degrees, retrying until it gets at least one edge, in O(n^2) time overall.
+ * Here the number of edges of a new vertex is drawn from the same limit distribution, Poisson(1) conditioned on being positive,
+ * and its neighbors are distinct earlier vertices chosen with probability proportional to their degree, as in
+ * StreamingBarabasiAlbertGenerator, so the graph is connected and has about 1.58 edges per vertex.
+ */
+public class StreamingScaleFreeGenerator implements StreamingGraphGenerator {
+    private final int n;
+    private final SplittableRandom random;
+
+    public StreamingScaleFreeGenerator(int n, SplittableRandom random) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of vertices must be non-negative");
+        this.n = n;
+        this.random = random;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return -1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        int[] endpoints = new int[16];
+        int size = 0;
+        int[] targets = new int[16];
+        for (int v = 1; v < n; v++) {
+            int k = Math.min(nextPositivePoisson(), v);
+            if (targets.length < k)
+                targets = new int[Math.max(k, 2 * targets.length)];
+            if (endpoints.length < size + 2 * k) {
+                long capacity = Math.max(size + 2L * k, 2L * endpoints.length);
+                if (capacity > Integer.MAX_VALUE - 8)
+                    throw new IllegalArgumentException("Too many edges");
+                int[] grown = new int[(int) capacity];
+                System.arraycopy(endpoints, 0, grown, 0, size);
+                endpoints = grown;
+            }
+
+            int sizeBefore = size;
+            for (int i = 0; i < k; i++) {
+                int target;
+                do {
+                    target = sizeBefore == 0 ? random.nextInt(v) : endpoints[random.nextInt(sizeBefore)];
+                } while (StreamingBarabasiAlbertGenerator.contains(targets, i, target));
+                targets[i] = target;
+                sink.addEdge(target, v);
+                endpoints[size++] = target;
+                endpoints[size++] = v;
+            }
+        }
+    }
+
+    // Poisson(1) conditioned on being positive, by inversion
+    private int nextPositivePoisson() {
+        double u = random.nextDouble() * (1 - Math.exp(-1)) + Math.exp(-1);
+        int k = 0;
+        double p = Math.exp(-1), cdf = p;
+        while (u > cdf) {
+            k++;
+            p /= k;
+            cdf += p;
+        }
+        return Math.max(k, 1);
+    }
+}
@@ -0,0 +1,36 @@
+package org.gai.generate;
+
+import java.io.IOException;
+
+/**
+ * Streaming counterpart of MyStarGraphGenerator
+ */
+public class StreamingStarGenerator implements StreamingGraphGenerator {
+    private final int n;
+    private final int centerVertex;
+
+    public StreamingStarGenerator(int n, int centerVertex) {
+        if (centerVertex < 0 || centerVertex >= n)
+            throw new IllegalArgumentException("centerVertex must be in [0, " + n + ")");
+        this.n = n;
+        this.centerVertex = centerVertex;
+    }
+
+    @Override
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    @Override
+    public long getNumOfEdges() {
+        return n - 1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) throws IOException {
+        for (int i = 0; i < n; i++) {
+            if (i != centerVertex)
+                sink.addEdge(centerVertex, i);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.gai.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs writes on a dedicated I/O thread, so that the generating thread does not wait on the file system.
+ * <p>
+ * Writes are queued in a bounded queue and run in submission order, the I/O thread drains them in batches.
+ * submit() blocks while the queue is full (backpressure), and rethrows the first failure of an earlier write,
+ * after which no more writes are run. close() runs all queued writes, stops the thread and rethrows the first failure.
+ */
+public class AsyncWriter implements Closeable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int BATCH_SIZE = 256;
+    private static final AtomicInteger NUM_OF_WRITERS = new AtomicInteger();
+
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    // queued after the last write by close()
+    private static final Write END = () -> {
+    };
+
+    private final BlockingQueue<Write> queue;
+    private final Thread thread;
+    private volatile IOException failure;
+    private boolean closed;
+
+    public AsyncWriter(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::drain, "graph-writer-" + NUM_OF_WRITERS.incrementAndGet());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Wraps a sink so that its writes run on the I/O thread of a new AsyncWriter
+     */
+    public static GraphSink wrap(GraphSink sink, int capacity) {
+        AsyncWriter writer = new AsyncWriter(capacity);
+        return new GraphSink() {
+            @Override
+            public void write(int graphId, String content) throws IOException {
+                writer.submit(() -> sink.write(graphId, content));
+            }
+
+            @Override
+            public void close() throws IOException {
+                // the sink is closed on this thread once the I/O thread has stopped
+                try {
+                    writer.close();
+                } finally {
+                    sink.close();
+                }
+            }
+        };
+    }
+
+    public void submit(Write write) throws IOException {
+        if (closed)
+            throw new IllegalStateException("Writer is closed");
+        checkFailure();
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the writer queue");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the writer");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null)
+            throw new IOException("Asynchronous write failed", e);
+    }
+
+    private void drain() {
+        List<Write> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Write write : batch) {
+                    if (write == END)
+                        return;
+                    if (failure != null)
+                        continue; // keep draining so that the producers are not blocked
+                    try {
+                        write.run();
+                    } catch (IOException | RuntimeException e) {
+                        failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
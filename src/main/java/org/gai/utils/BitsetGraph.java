@@ -0,0 +1,151 @@
+package org.gai.utils;
+
+/**
+ * Small undirected graph (at most MAX_NODES vertices) as adjacency bitmasks, where bit v of adjacency[u] is set iff (u,v) is an edge.
+ * <p>
+ * The algorithms handle a whole set of vertices per machine word: a BFS expands its frontier by OR-ing the adjacency
+ * of the frontier vertices and masking out the visited ones, triangles are popcounts of intersected neighborhoods.
+ * Results do not depend on the order of the edges, the orders that do (traversal orders) are computed on the CsrGraph.
+ */
+public final class BitsetGraph {
+    public static final int MAX_NODES = 64;
+
+    private final int n;
+    private final long[] adjacency;
+
+    public BitsetGraph(CsrGraph g) {
+        if (g.getNumOfNodes() > MAX_NODES)
+            throw new IllegalArgumentException("Number of vertices must be at most " + MAX_NODES);
+        this.n = g.getNumOfNodes();
+        this.adjacency = new long[n];
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            adjacency[u] |= 1L << v;
+            adjacency[v] |= 1L << u;
+        }
+    }
+
+    public static boolean isSmall(CsrGraph g) {
+        return g.getNumOfNodes() <= MAX_NODES;
+    }
+
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    public long getNeighbors(int v) {
+        return adjacency[v];
+    }
+
+    // the union of the neighborhoods of the vertices of the set
+    private long expand(long vertices) {
+        long next = 0;
+        for (long rest = vertices; rest != 0; rest &= rest - 1)
+            next |= adjacency[Long.numberOfTrailingZeros(rest)];
+        return next;
+    }
+
+    private long allVertices() {
+        return n == 64 ? -1L : (1L << n) - 1;
+    }
+
+    /**
+     * The component of each vertex, components are numbered by their smallest vertex
+     */
+    public int[] getComponents() {
+        int[] componentOf = new int[n];
+        long unvisited = allVertices();
+        int c = 0;
+        while (unvisited != 0) {
+            long component = Long.lowestOneBit(unvisited), frontier = component;
+            while (frontier != 0) {
+                frontier = expand(frontier) & ~component;
+                component |= frontier;
+            }
+            for (long rest = component; rest != 0; rest &= rest - 1)
+                componentOf[Long.numberOfTrailingZeros(rest)] = c;
+            unvisited &= ~component;
+            c++;
+        }
+        return componentOf;
+    }
+
+    /**
+     * The largest distance from s to a vertex, -1 if some vertex is not reachable from s
+     */
+    public int getEccentricity(int s) {
+        long visited = 1L << s, frontier = visited;
+        int depth = 0;
+        while (true) {
+            frontier = expand(frontier) & ~visited;
+            if (frontier == 0)
+                break;
+            visited |= frontier;
+            depth++;
+        }
+        return visited == allVertices() ? depth : -1;
+    }
+
+    /**
+     * The eccentricity of every vertex, see getEccentricity()
+     */
+    public int[] getEccentricities() {
+        int[] eccentricities = new int[n];
+        for (int s = 0; s < n; s++)
+            eccentricities[s] = getEccentricity(s);
+        return eccentricities;
+    }
+
+    /**
+     * The length of a shortest cycle, Integer.MAX_VALUE if the graph is acyclic.
+     * In the BFS from s, the first cycle closed is either an edge inside layer d (length 2d + 1),
+     * or a vertex of layer d + 1 with two neighbors in layer d (length 2d + 2); it is a shortest cycle if s is on one
+     */
+    public int getGirth() {
+        int girth = Integer.MAX_VALUE;
+        for (int s = 0; s < n; s++) {
+            long visited = 1L << s, layer = visited;
+            // a cycle found from s at depth d is at least 2d + 1 long
+            for (int d = 0; layer != 0 && 2 * d + 1 < girth; d++) {
+                int cycle = Integer.MAX_VALUE;
+                for (long rest = layer; rest != 0; rest &= rest - 1) {
+                    if ((adjacency[Long.numberOfTrailingZeros(rest)] & layer) != 0) {
+                        cycle = 2 * d + 1;
+                        break;
+                    }
+                }
+                long next = expand(layer) & ~visited;
+                if (cycle == Integer.MAX_VALUE) {
+                    for (long rest = next; rest != 0; rest &= rest - 1) {
+                        if (Long.bitCount(adjacency[Long.numberOfTrailingZeros(rest)] & layer) >= 2) {
+                            cycle = 2 * d + 2;
+                            break;
+                        }
+                    }
+                }
+                if (cycle != Integer.MAX_VALUE) {
+                    girth = Math.min(girth, cycle);
+                    break;
+                }
+                visited |= next;
+                layer = next;
+            }
+        }
+        return girth;
+    }
+
+    /**
+     * Counts each triangle u < v < w once
+     */
+    public long countTriangles() {
+        long count = 0;
+        for (int u = 0; u < n; u++) {
+            long higher = adjacency[u] & (-2L << u); // neighbors greater than u
+            for (long rest = higher; rest != 0; rest &= rest - 1) {
+                int v = Long.numberOfTrailingZeros(rest);
+                count += Long.bitCount(adjacency[v] & higher & (-2L << v));
+            }
+        }
+        return count;
+    }
+}
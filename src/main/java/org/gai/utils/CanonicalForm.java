@@ -0,0 +1,111 @@
+package org.gai.utils;
+
+/**
+ * Canonical form of small undirected graphs (at most MAX_NODES vertices) given as adjacency bitmasks,
+ * where bit v of adjacency[u] is set iff (u,v) is an edge.
+ * <p>
+ * The code of a labeled graph is the bit string of its vertex pairs in column order
+ * (0,1), (0,2), (1,2), (0,3), (1,3), (2,3), ..., and the canonical form is the relabeling with the lexicographically largest code.
+ * Relabelings are searched vertex by vertex: placing the vertex with new label t fixes column t of the code,
+ * so a branch is cut as soon as its column is smaller than the best one found so far.
+ * <p>
+ * An instance keeps its search buffers between calls and is not thread-safe.
+ */
+public class CanonicalForm {
+    public static final int MAX_NODES = 11; // 55 pairs, the code fits in a long
+
+    private final int n;
+    private final int[] best; // best[t] : column t of the largest code found so far
+    private final int[][] columns; // columns[t][v] : column t of the code if v gets label t
+    private int[] adjacency;
+
+    public CanonicalForm(int n) {
+        if (n < 1 || n > MAX_NODES)
+            throw new IllegalArgumentException("Number of vertices must be in [1, " + MAX_NODES + "]");
+        this.n = n;
+        this.best = new int[n];
+        this.columns = new int[n][n];
+    }
+
+    /**
+     * Returns true iff no relabeling of the graph has a larger code than the graph itself
+     */
+    public boolean isCanonical(int[] adjacency) {
+        init(adjacency);
+        return !existsLarger(0, (1 << n) - 1);
+    }
+
+    /**
+     * Returns the largest code over all relabelings, two graphs are isomorphic iff their canonical codes are equal
+     */
+    public long canonicalCode(int[] adjacency) {
+        init(adjacency);
+        maximize(0, (1 << n) - 1);
+        long code = 0;
+        for (int t = 1; t < n; t++)
+            code = (code << t) | best[t];
+        return code;
+    }
+
+    // the code of the graph itself is the starting point of both searches
+    private void init(int[] adjacency) {
+        this.adjacency = adjacency;
+        for (int t = 0; t < n; t++) {
+            int column = 0;
+            for (int i = 0; i < t; i++)
+                column = (column << 1) | ((adjacency[i] >>> t) & 1);
+            best[t] = column;
+            columns[0][t] = 0;
+        }
+    }
+
+    private boolean existsLarger(int t, int unplaced) {
+        if (t == n)
+            return false;
+        for (int rest = unplaced; rest != 0; rest &= rest - 1) {
+            int v = Integer.numberOfTrailingZeros(rest);
+            int column = columns[t][v];
+            if (column > best[t])
+                return true;
+            if (column < best[t])
+                continue;
+            int next = unplaced & ~(1 << v);
+            extendColumns(t, v, next);
+            if (existsLarger(t + 1, next))
+                return true;
+        }
+        return false;
+    }
+
+    // the columns placed before level t are equal to the best ones
+    private void maximize(int t, int unplaced) {
+        if (t == n)
+            return;
+        for (int rest = unplaced; rest != 0; rest &= rest - 1) {
+            int v = Integer.numberOfTrailingZeros(rest);
+            int column = columns[t][v];
+            if (column < best[t])
+                continue;
+            if (column > best[t]) {
+                // a new best prefix, anything below this level is accepted until it is improved again
+                best[t] = column;
+                for (int s = t + 1; s < n; s++)
+                    best[s] = -1;
+            }
+            int next = unplaced & ~(1 << v);
+            extendColumns(t, v, next);
+            maximize(t + 1, next);
+        }
+    }
+
+    private void extendColumns(int t, int v, int unplaced) {
+        if (t + 1 == n)
+            return;
+        int[] current = columns[t], extended = columns[t + 1];
+        int adjOfV = adjacency[v];
+        for (int rest = unplaced; rest != 0; rest &= rest - 1) {
+            int w = Integer.numberOfTrailingZeros(rest);
+            extended[w] = (current[w] << 1) | ((adjOfV >>> w) & 1);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.gai.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip compression of the dataset, property and prompt outputs.
+ * <p>
+ * When the output compression is on, the writers append GZIP_EXTENSION to the file names and gzip the content.
+ * The readers detect gzip input from its magic bytes, whatever the file name, so compressed and plain files can be mixed.
+ */
+public class CompressionUtils {
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int GZIP_MAGIC_1 = 0x1f, GZIP_MAGIC_2 = 0x8b;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static volatile boolean compressOutput = false;
+
+    public static boolean isCompressOutput() {
+        return compressOutput;
+    }
+
+    public static void setCompressOutput(boolean compressOutput) {
+        CompressionUtils.compressOutput = compressOutput;
+    }
+
+    /**
+     * The name of an output file, with GZIP_EXTENSION appended when the output is compressed
+     */
+    public static String getOutputName(String name) {
+        return compressOutput ? name + GZIP_EXTENSION : name;
+    }
+
+    /**
+     * The name without GZIP_EXTENSION, e.g., graph_000001.csv for graph_000001.csv.gz
+     */
+    public static String stripExtension(String name) {
+        return name.endsWith(GZIP_EXTENSION) ? name.substring(0, name.length() - GZIP_EXTENSION.length()) : name;
+    }
+
+    /**
+     * The file that exists among path and path + GZIP_EXTENSION, path if neither does
+     */
+    public static Path resolveInput(Path path) {
+        if (Files.exists(path))
+            return path;
+        Path compressed = path.resolveSibling(path.getFileName() + GZIP_EXTENSION);
+        return Files.exists(compressed) ? compressed : path;
+    }
+
+    /**
+     * Opens path for writing, gzipped when the output is compressed, the name is not changed
+     */
+    public static OutputStream newOutputStream(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path);
+        if (compressOutput)
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Writes a whole small file with a single write, gzipped when the output is compressed, the name is not changed
+     */
+    public static void write(Path path, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(path, compressOutput ? gzip(bytes) : bytes);
+    }
+
+    public static Writer newWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(newOutputStream(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens path for reading, decompressing it if it starts with the gzip magic bytes
+     */
+    public static InputStream newInputStream(Path path) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        in.mark(2);
+        int b1 = in.read(), b2 = in.read();
+        in.reset();
+        if (b1 == GZIP_MAGIC_1 && b2 == GZIP_MAGIC_2)
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        return in;
+    }
+
+    public static BufferedReader newReader(Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(newInputStream(path), StandardCharsets.UTF_8));
+    }
+
+    public static String readString(Path path) throws IOException {
+        try (InputStream in = newInputStream(path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static boolean isGzip(byte[] bytes) {
+        return isGzip(bytes, 0, bytes.length);
+    }
+
+    public static boolean isGzip(byte[] bytes, int offset, int length) {
+        return length >= 2 && (bytes[offset] & 0xff) == GZIP_MAGIC_1 && (bytes[offset + 1] & 0xff) == GZIP_MAGIC_2;
+    }
+
+    public static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by a ByteArrayOutputStream
+        }
+        return out.toByteArray();
+    }
+
+    public static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
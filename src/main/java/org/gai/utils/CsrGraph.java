@@ -0,0 +1,190 @@
+package org.gai.utils;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.jgrapht.util.SupplierUtil;
+
+import java.util.Arrays;
+
+/**
+ * Immutable undirected simple graph on the vertices 0, 1, ..., n - 1 in compressed sparse row form.
+ * <p>
+ * The neighbors of v are neighbors[offsets[v]], ..., neighbors[offsets[v + 1] - 1], in the order in which the edges were given,
+ * and incidentEdges holds the id of the edge behind each of these entries.
+ * Edge e is (edgeSources[e], edgeTargets[e]), edges keep the order and the orientation in which they were given,
+ * so a graph serialized from a CsrGraph lists its edges exactly as they were read or generated.
+ */
+public final class CsrGraph {
+    private final int n;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] incidentEdges;
+    private final int[] edgeSources;
+    private final int[] edgeTargets;
+
+    /**
+     * The edge arrays are owned by the graph afterwards and must not be modified by the caller
+     */
+    public CsrGraph(int n, int[] edgeSources, int[] edgeTargets) {
+        if (n < 0)
+            throw new IllegalArgumentException("Number of vertices must be non-negative");
+        if (edgeSources.length != edgeTargets.length)
+            throw new IllegalArgumentException("Edge sources and targets must have the same length");
+
+        this.n = n;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+
+        int m = edgeSources.length;
+        this.offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            int u = edgeSources[e], v = edgeTargets[e];
+            if (u < 0 || u >= n || v < 0 || v >= n)
+                throw new IllegalArgumentException("Edge (" + u + "," + v + ") has a vertex out of [0, " + n + ")");
+            if (u == v)
+                throw new IllegalArgumentException("Self loop on vertex " + u);
+            offsets[u + 1]++;
+            offsets[v + 1]++;
+        }
+        for (int v = 0; v < n; v++)
+            offsets[v + 1] += offsets[v];
+
+        // counting sort by endpoint, stable in the edge order
+        this.neighbors = new int[2 * m];
+        this.incidentEdges = new int[2 * m];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < m; e++) {
+            int u = edgeSources[e], v = edgeTargets[e];
+            neighbors[next[u]] = v;
+            incidentEdges[next[u]++] = e;
+            neighbors[next[v]] = u;
+            incidentEdges[next[v]++] = e;
+        }
+    }
+
+    /**
+     * Copies a jgrapht graph whose vertices are 0, 1, ..., n - 1, the edges keep the order of g.edgeSet()
+     */
+    public static <E> CsrGraph fromGraph(Graph<Integer, E> g) {
+        int n = g.vertexSet().size();
+        for (Integer v : g.vertexSet()) {
+            if (v < 0 || v >= n)
+                throw new IllegalArgumentException("Vertices must be 0, 1, ..., " + (n - 1));
+        }
+        int m = g.edgeSet().size();
+        int[] sources = new int[m], targets = new int[m];
+        int e = 0;
+        for (E edge : g.edgeSet()) {
+            sources[e] = g.getEdgeSource(edge);
+            targets[e] = g.getEdgeTarget(edge);
+            e++;
+        }
+        return new CsrGraph(n, sources, targets);
+    }
+
+    /**
+     * Builds the graph of adjacency bitmasks (bit v of adjacency[u] is set iff (u,v) is an edge),
+     * with the edges (u,v), u < v, ordered by u and then by v
+     */
+    public static CsrGraph fromAdjacency(int[] adjacency) {
+        int n = adjacency.length, m = 0;
+        for (int u = 0; u < n; u++)
+            m += Integer.bitCount(adjacency[u] >>> u >>> 1);
+        int[] sources = new int[m], targets = new int[m];
+        int e = 0;
+        for (int u = 0; u < n; u++) {
+            for (int rest = adjacency[u] >>> u >>> 1; rest != 0; rest &= rest - 1) {
+                sources[e] = u;
+                targets[e++] = u + 1 + Integer.numberOfTrailingZeros(rest);
+            }
+        }
+        return new CsrGraph(n, sources, targets);
+    }
+
+    public int getNumOfNodes() {
+        return n;
+    }
+
+    public int getNumOfEdges() {
+        return edgeSources.length;
+    }
+
+    public int getEdgeSource(int e) {
+        return edgeSources[e];
+    }
+
+    public int getEdgeTarget(int e) {
+        return edgeTargets[e];
+    }
+
+    public int degreeOf(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Returns the i-th neighbor of v, 0 <= i < degreeOf(v)
+     */
+    public int getNeighbor(int v, int i) {
+        return neighbors[offsets[v] + i];
+    }
+
+    /**
+     * Returns the id of the edge between v and its i-th neighbor
+     */
+    public int getIncidentEdge(int v, int i) {
+        return incidentEdges[offsets[v] + i];
+    }
+
+    /**
+     * Returns the id of the edge (u,v), or -1 if there is none
+     */
+    public int getEdge(int u, int v) {
+        if (u < 0 || u >= n || v < 0 || v >= n)
+            return -1;
+        // scan the shorter list, degrees are small for the graphs of the dataset
+        if (degreeOf(u) > degreeOf(v)) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            if (neighbors[i] == v)
+                return incidentEdges[i];
+        }
+        return -1;
+    }
+
+    public boolean containsEdge(int u, int v) {
+        return getEdge(u, v) >= 0;
+    }
+
+    // raw arrays for the algorithms of this package, must not be modified
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] neighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Copies the graph into a modifiable jgrapht graph, adding the vertices in id order and the edges in edge order
+     */
+    public SimpleGraph<Integer, DefaultEdge> toGraph() {
+        SimpleGraph<Integer, DefaultEdge> graph = new SimpleGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), false);
+        for (int v = 0; v < n; v++)
+            graph.addVertex(v);
+        for (int e = 0; e < edgeSources.length; e++)
+            graph.addEdge(edgeSources[e], edgeTargets[e]);
+        return graph;
+    }
+
+    /**
+     * Returns a read-only jgrapht view of this graph without copying it, edges are their ids and weigh 1.0
+     */
+    public Graph<Integer, Integer> asGraph() {
+        return new CsrGraphView(this);
+    }
+}
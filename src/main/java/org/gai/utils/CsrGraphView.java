@@ -0,0 +1,247 @@
+package org.gai.utils;
+
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Read-only jgrapht view of a CsrGraph, see CsrGraph.asGraph()
+ */
+class CsrGraphView extends AbstractGraph<Integer, Integer> {
+    private static final GraphType TYPE = new DefaultGraphType.Builder()
+            .undirected()
+            .allowMultipleEdges(false)
+            .allowSelfLoops(false)
+            .weighted(false)
+            .modifiable(false)
+            .build();
+
+    private final CsrGraph g;
+    private final Set<Integer> vertexSet;
+    private final Set<Integer> edgeSet;
+
+    CsrGraphView(CsrGraph g) {
+        this.g = g;
+        this.vertexSet = new IdSet(g.getNumOfNodes());
+        this.edgeSet = new IdSet(g.getNumOfEdges());
+    }
+
+    @Override
+    public Set<Integer> getAllEdges(Integer u, Integer v) {
+        if (!containsVertex(u) || !containsVertex(v))
+            return null;
+        int e = g.getEdge(u, v);
+        return e < 0 ? Collections.emptySet() : Collections.singleton(e);
+    }
+
+    @Override
+    public Integer getEdge(Integer u, Integer v) {
+        if (u == null || v == null)
+            return null;
+        int e = g.getEdge(u, v);
+        return e < 0 ? null : e;
+    }
+
+    @Override
+    public Supplier<Integer> getVertexSupplier() {
+        return null;
+    }
+
+    @Override
+    public Supplier<Integer> getEdgeSupplier() {
+        return null;
+    }
+
+    @Override
+    public Integer addEdge(Integer u, Integer v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean addEdge(Integer u, Integer v, Integer e) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public Integer addVertex() {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean addVertex(Integer v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean containsEdge(Integer e) {
+        return edgeSet.contains(e);
+    }
+
+    @Override
+    public boolean containsVertex(Integer v) {
+        return vertexSet.contains(v);
+    }
+
+    @Override
+    public Set<Integer> edgeSet() {
+        return edgeSet;
+    }
+
+    @Override
+    public int degreeOf(Integer v) {
+        assertVertexExist(v);
+        return g.degreeOf(v);
+    }
+
+    @Override
+    public Set<Integer> edgesOf(Integer v) {
+        assertVertexExist(v);
+        return new IncidentEdgeSet(v);
+    }
+
+    @Override
+    public int inDegreeOf(Integer v) {
+        return degreeOf(v);
+    }
+
+    @Override
+    public Set<Integer> incomingEdgesOf(Integer v) {
+        return edgesOf(v);
+    }
+
+    @Override
+    public int outDegreeOf(Integer v) {
+        return degreeOf(v);
+    }
+
+    @Override
+    public Set<Integer> outgoingEdgesOf(Integer v) {
+        return edgesOf(v);
+    }
+
+    @Override
+    public Integer removeEdge(Integer u, Integer v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean removeEdge(Integer e) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean removeVertex(Integer v) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public Set<Integer> vertexSet() {
+        return vertexSet;
+    }
+
+    @Override
+    public Integer getEdgeSource(Integer e) {
+        return g.getEdgeSource(e);
+    }
+
+    @Override
+    public Integer getEdgeTarget(Integer e) {
+        return g.getEdgeTarget(e);
+    }
+
+    @Override
+    public GraphType getType() {
+        return TYPE;
+    }
+
+    @Override
+    public double getEdgeWeight(Integer e) {
+        return DEFAULT_EDGE_WEIGHT;
+    }
+
+    @Override
+    public void setEdgeWeight(Integer e, double weight) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    // the ids 0, 1, ..., size - 1
+    private static class IdSet extends AbstractSet<Integer> {
+        private final int size;
+
+        IdSet(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && (Integer) o >= 0 && (Integer) o < size;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next >= size)
+                        throw new NoSuchElementException();
+                    return next++;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class IncidentEdgeSet extends AbstractSet<Integer> {
+        private final int v;
+
+        IncidentEdgeSet(int v) {
+            this.v = v;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Integer) || !edgeSet.contains(o))
+                return false;
+            int e = (Integer) o;
+            return g.getEdgeSource(e) == v || g.getEdgeTarget(e) == v;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int i = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return i < g.degreeOf(v);
+                }
+
+                @Override
+                public Integer next() {
+                    if (i >= g.degreeOf(v))
+                        throw new NoSuchElementException();
+                    return g.getIncidentEdge(v, i++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return g.degreeOf(v);
+        }
+    }
+}
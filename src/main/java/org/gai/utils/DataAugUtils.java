@@ -4,59 +4,147 @@ package org.gai.utils;
 import org.jgrapht.alg.util.Pair;
 import org.jgrapht.alg.util.Triple;
 
-import java.io.File;
+import java.io.Closeable;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
-import static org.gai.utils.FileUtils.*;
-
+/**
+ * Five variants of every original graph of the dataset, see augment(CsrGraph, SplittableRandom):
+ * two node shifts (a random relabeling of the vertices), the edge shift (a random order of the edges) of the original graph
+ * and of each node shift. They are written next to the original, see FileUtils.openGraphSink(format, folder, suffix).
+ */
 public class DataAugUtils {
+    // the file name suffixes of the variants, in the order of augment()
+    public static final List<String> VARIANTS = List.of(
+            "-node-shift-1",
+            "-node-shift-2",
+            "-edge-shift-1",
+            "-node-shift-1-edge-shift-1",
+            "-node-shift-2-edge-shift-1"
+    );
 
-    public static void augment() {
-        List<Path> totalFiles;
-        try {
-            totalFiles = listFiles(Paths.get("./dataset"));
-            System.out.println("Total number of files: " + totalFiles.size());
-
-            for (Path p : totalFiles) {
-                String parent = p.getParent().toString();
-                String fileName = p.getFileName().toString();
-
-                int pos = fileName.lastIndexOf(".");
-                String graphName = fileName.substring(0, pos);
+    public static void main(String[] args) {
+        augment(GenerationOptions.parse(args));
+    }
 
-                Pair<Set<Integer>, List<Pair<Integer, Integer>>> g = readGraph(p.toString());
-                Triple<Set<Integer>, List<Pair<Integer, Integer>>, List<Integer>> gNodeShift1 = nodeShifting(g);
-                Triple<Set<Integer>, List<Pair<Integer, Integer>>, List<Integer>> gNodeShift2 = nodeShifting(g);
+    public static void augment() {
+        augment(new GenerationOptions());
+    }
 
-                while (gNodeShift2.getThird().equals(gNodeShift1.getThird()))
-                    gNodeShift2 = nodeShifting(g);
+    /**
+     * Augments the original graphs of ./dataset, the derived ones (the variants written by an earlier run) are never augmented.
+     * <p>
+     * The work is split into the DatasetUnits of original graphs, which run on a work-stealing pool of the given number of threads.
+     * A unit parses each original graph once and writes its five variants in the format of the unit: in a legacy unit,
+     * graph_xxxxxx[suffix].csv[.gz] next to graph_xxxxxx.csv, in a sharded one, the shard of the block in each variant folder,
+     * so running a unit again overwrites the same files.
+     * The variants of a graph draw from the random stream of (graphId, generator name + "-aug"), as in GraphPipeline.
+     * Every completed unit is recorded in the augmentation manifest, and skipped when resuming
+     * unless its original graphs changed or some of its variants are missing, see GenerationManifest.openAugmentation()
+     * and DatasetUnit.hasAllVariants();
+     * the master seed of the manifest is used when the seed option is absent.
+     */
+    public static void augment(GenerationOptions options) {
+        if (options.isResume() && !options.isMasterSeedSet()) {
+            Long manifestSeed = GenerationManifest.readMasterSeed(GenerationManifest.getAugmentationPath());
+            if (manifestSeed != null)
+                options.setMasterSeed(manifestSeed);
+        }
+        Metrics.setVerbosity(options.getVerbosity());
+        Metrics.reset();
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "master seed: " + options.getMasterSeed());
+        CompressionUtils.setCompressOutput(options.isCompressed());
 
-                writeGraph(new File(parent, graphName + "-node-shift-1.csv"), gNodeShift1.getFirst(), gNodeShift1.getSecond(), nodeShiftingSer(gNodeShift1.getThird()));
-                writeGraph(new File(parent, graphName + "-node-shift-2.csv"), gNodeShift2.getFirst(), gNodeShift2.getSecond(), nodeShiftingSer(gNodeShift2.getThird()));
+        Path dataset = Path.of(PropertyDriver.DATASET_PATH);
+        List<DatasetUnit> units;
+        try {
+            units = DatasetUnit.list(dataset).stream().filter(unit -> !unit.isDerived()).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "units of original graphs: " + units.size());
 
-                Pair<Set<Integer>, List<Pair<Integer, Integer>>> gES = edgeShifting(g);
-                writeGraph(new File(parent, graphName + "-edge-shift-1.csv"), gES);
+        try (GenerationManifest manifest = GenerationManifest.openAugmentation(options)) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (DatasetUnit unit : units) {
+                tasks.add(() -> {
+                    if (manifest.isCompleted(unit.getName(), dataset.resolve(unit.getFolder())) && unit.hasAllVariants(dataset)) {
+                        Metrics.println(Metrics.VERBOSITY_VERBOSE, "skipping augmented unit " + unit.getName());
+                        return;
+                    }
+                    GenerationManifest.Unit record = manifest.newUnit(unit.getName());
+                    try {
+                        augment(dataset, unit, record, options.getMasterSeed());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    manifest.complete(record);
+                });
+            }
+            Closeable progress = Metrics.startProgress(options.getProgressInterval());
+            try {
+                PropertyDriver.runTasks(tasks, options.getNumOfThreads());
+            } finally {
+                progress.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-                Pair<Set<Integer>, List<Pair<Integer, Integer>>> nS1ES1 = edgeShifting(Pair.of(gNodeShift1.getFirst(), gNodeShift1.getSecond()));
-                while (nS1ES1.getSecond().equals(gNodeShift1.getSecond())) // todo:
-                    nS1ES1 = edgeShifting(Pair.of(gNodeShift1.getFirst(), gNodeShift1.getSecond()));
-                writeGraph(new File(parent, graphName + "-node-shift-1-edge-shift-1.csv"), nS1ES1.getFirst(), nS1ES1.getSecond(), nodeShiftingSer(gNodeShift1.getThird()));
+        Path summary = dataset.resolve("augmentation_metrics.json");
+        try {
+            Metrics.writeSummary(summary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.println(Metrics.VERBOSITY_NORMAL, Metrics.getProgress());
+    }
 
-                Pair<Set<Integer>, List<Pair<Integer, Integer>>> nS2ES1 = edgeShifting(Pair.of(gNodeShift2.getFirst(), gNodeShift2.getSecond()));
-                while (nS2ES1.getSecond().equals(gNodeShift2.getSecond())) // todo:
-                    nS2ES1 = edgeShifting(Pair.of(gNodeShift2.getFirst(), gNodeShift2.getSecond()));
-                writeGraph(new File(parent, graphName + "-node-shift-2-edge-shift-1.csv"), nS2ES1.getFirst(), nS2ES1.getSecond(), nodeShiftingSer(gNodeShift2.getThird()));
+    // the original graphs of the unit are added to the checksum of record
+    private static void augment(Path dataset, DatasetUnit unit, GenerationManifest.Unit record, long masterSeed) throws IOException {
+        String folder = dataset.resolve(unit.getFolder()).toString();
+        OutputFormat format = unit.isSharded() ? OutputFormat.SHARD : OutputFormat.LEGACY;
+        String augmentationName = (unit.getGeneratorName() == null ? "" : unit.getGeneratorName()) + "-aug";
+        Map<String, GraphSink> sinks = new HashMap<>();
+        try {
+            for (String suffix : VARIANTS)
+                sinks.put(suffix, FileUtils.openGraphSink(format, folder, suffix));
+            unit.forEachOriginal(dataset, (graphId, path, content) -> {
+                record.update(graphId, content);
+                CsrGraph g = FileUtils.parseCsrGraph(content);
+                long start = Metrics.start(), numOfBytes = 0;
+                Map<String, Pair<CsrGraph, String>> variants = augment(g, RandomUtils.getRandom(masterSeed, g.getNumOfNodes(), augmentationName, graphId));
+                for (Map.Entry<String, Pair<CsrGraph, String>> variant : variants.entrySet()) {
+                    String serialized = FileUtils.serializeGraph(null, variant.getValue().getFirst(), null, variant.getValue().getSecond());
+                    sinks.get(variant.getKey()).write(graphId, serialized);
+                    numOfBytes += serialized.length();
+                }
+                Metrics.getStage(Metrics.AUGMENT, g.getNumOfNodes(), unit.getGeneratorName()).record(start, numOfBytes);
+            });
+        } finally {
+            IOException failure = null;
+            for (GraphSink sink : sinks.values()) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+            if (failure != null)
+                throw failure;
         }
+        Metrics.println(Metrics.VERBOSITY_VERBOSE, "augmented: " + unit.getName());
+    }
+
+    /**
+     * Whether a folder of the dataset holds variants, i.e., is named after a suffix of VARIANTS without its leading '-'
+     */
+    public static boolean isVariantFolder(String name) {
+        return VARIANTS.contains("-" + name);
     }
 
     public static Triple<Set<Integer>, List<Pair<Integer, Integer>>, List<Integer>> nodeShifting(Pair<Set<Integer>, List<Pair<Integer, Integer>>> originalG) {
@@ -86,11 +174,89 @@ public class DataAugUtils {
         return Pair.of(newNodes, newEdges);
     }
 
-    private static String nodeShiftingSer(List<Integer> original2New) {
+    /**
+     * In-memory version of the five variants written by augment(), keyed by their file name suffix.
+     * Each value holds the variant and its info (the node mapping, null for the edge shift of the original graph).
+     * Variants that are required to differ from another one are redrawn only if a different result exists.
+     */
+    public static Map<String, Pair<CsrGraph, String>> augment(CsrGraph g, SplittableRandom random) {
+        int n = g.getNumOfNodes(), m = g.getNumOfEdges();
+
+        int[] shift1 = getRandomPermutation(n, random), shift2 = getRandomPermutation(n, random);
+        while (n > 1 && Arrays.equals(shift1, shift2))
+            shift2 = getRandomPermutation(n, random);
+        CsrGraph gNodeShift1 = nodeShifting(g, shift1), gNodeShift2 = nodeShifting(g, shift2);
+
+        CsrGraph gES = edgeShifting(g, getRandomPermutation(m, random));
+        CsrGraph nS1ES1 = edgeShifting(gNodeShift1, getShuffledOrder(m, random));
+        CsrGraph nS2ES1 = edgeShifting(gNodeShift2, getShuffledOrder(m, random));
+
+        Map<String, Pair<CsrGraph, String>> variants = new LinkedHashMap<>();
+        variants.put(VARIANTS.get(0), Pair.of(gNodeShift1, nodeShiftingSer(shift1)));
+        variants.put(VARIANTS.get(1), Pair.of(gNodeShift2, nodeShiftingSer(shift2)));
+        variants.put(VARIANTS.get(2), Pair.of(gES, null));
+        variants.put(VARIANTS.get(3), Pair.of(nS1ES1, nodeShiftingSer(shift1)));
+        variants.put(VARIANTS.get(4), Pair.of(nS2ES1, nodeShiftingSer(shift2)));
+        return variants;
+    }
+
+    // vertex v of g is vertex original2New[v] of the result, edges keep their order
+    public static CsrGraph nodeShifting(CsrGraph g, int[] original2New) {
+        int m = g.getNumOfEdges();
+        int[] sources = new int[m], targets = new int[m];
+        for (int e = 0; e < m; e++) {
+            sources[e] = original2New[g.getEdgeSource(e)];
+            targets[e] = original2New[g.getEdgeTarget(e)];
+        }
+        return new CsrGraph(g.getNumOfNodes(), sources, targets);
+    }
+
+    // edge i of the result is edge order[i] of g
+    public static CsrGraph edgeShifting(CsrGraph g, int[] order) {
+        int m = g.getNumOfEdges();
+        int[] sources = new int[m], targets = new int[m];
+        for (int i = 0; i < m; i++) {
+            sources[i] = g.getEdgeSource(order[i]);
+            targets[i] = g.getEdgeTarget(order[i]);
+        }
+        return new CsrGraph(g.getNumOfNodes(), sources, targets);
+    }
+
+    // a uniform random permutation of 0, 1, ..., size - 1 (Fisher-Yates)
+    private static int[] getRandomPermutation(int size, SplittableRandom random) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++)
+            permutation[i] = i;
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = t;
+        }
+        return permutation;
+    }
+
+    // a random permutation that is not the identity, unless the identity is the only one
+    private static int[] getShuffledOrder(int size, SplittableRandom random) {
+        int[] order = getRandomPermutation(size, random);
+        while (size > 1 && isIdentity(order))
+            order = getRandomPermutation(size, random);
+        return order;
+    }
+
+    private static boolean isIdentity(int[] permutation) {
+        for (int i = 0; i < permutation.length; i++) {
+            if (permutation[i] != i)
+                return false;
+        }
+        return true;
+    }
+
+    private static String nodeShiftingSer(int[] original2New) {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("original_node_id").append("->").append("shifted_node_id").append("\n");
-        for (int i = 0; i < original2New.size(); i++) {
-            stringBuilder.append(i).append("->").append(original2New.get(i)).append("\n");
+        for (int i = 0; i < original2New.length; i++) {
+            stringBuilder.append(i).append("->").append(original2New[i]).append("\n");
         }
         return stringBuilder.toString();
     }
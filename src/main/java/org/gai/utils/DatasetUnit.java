@@ -0,0 +1,197 @@
+package org.gai.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The graphs of one block of ShardedGraphWriter.GRAPHS_PER_SHARD graph ids in one folder of the dataset, legacy or sharded:
+ * one shard of a sharded folder, or the graph_xxxxxx folders of the block with all their files.
+ * <p>
+ * A graph is original or derived (an augmented variant, see DataAugUtils.VARIANTS):
+ * in the legacy format, graph_xxxxxx.csv[.gz] is the original and graph_xxxxxx[suffix].csv[.gz] next to it a variant,
+ * in the sharded format, the variants are in the folders [suffix without the leading '-'] under the folder of the originals,
+ * so a unit of such a folder is derived as a whole.
+ * Any other file of the dataset (manifests, metrics, shard data) is not a graph.
+ */
+public class DatasetUnit {
+    // graph_xxxxxx[suffix].csv[.gz] in the folder graph_xxxxxx of the legacy format
+    private static final Pattern GRAPH_FILE = Pattern.compile("graph_(\\d+)([^/]*)\\.csv(\\.gz)?");
+    private static final Pattern SHARD_INDEX = Pattern.compile("shard_(\\d+)\\.idx");
+    private static final Pattern NUM_NODES = Pattern.compile("n\\d+");
+
+    public interface GraphVisitor {
+        /**
+         * path : the graph file relative to the dataset in the legacy format, the folder relative to the dataset followed by graph_xxxxxx in the sharded one
+         */
+        void accept(int graphId, String path, String content) throws IOException;
+    }
+
+    private final Path folder;
+    private final int block;
+    private final boolean sharded;
+    private final boolean derived;
+    private final String generatorName;
+    private final List<Path> files = new ArrayList<>(); // the graph files of a legacy unit, in path order
+    private final List<Path> originals = new ArrayList<>(); // the original ones among them
+
+    private DatasetUnit(Path folder, int block, boolean sharded) {
+        this.folder = folder;
+        this.block = block;
+        this.sharded = sharded;
+        this.derived = sharded && folder.getNameCount() > 0 && DataAugUtils.isVariantFolder(folder.getFileName().toString());
+        this.generatorName = getGeneratorName(folder);
+    }
+
+    /**
+     * The units of the dataset, in path order
+     */
+    public static List<DatasetUnit> list(Path dataset) throws IOException {
+        Map<String, DatasetUnit> units = new TreeMap<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dataset)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Path relative = dataset.relativize(file);
+            Matcher shardMatcher = SHARD_INDEX.matcher(file.getFileName().toString());
+            if (shardMatcher.matches()) {
+                Path folder = relative.getParent() == null ? Path.of("") : relative.getParent();
+                int shard = Integer.parseInt(shardMatcher.group(1));
+                units.computeIfAbsent(folder + "/" + shard, k -> new DatasetUnit(folder, shard, true));
+                continue;
+            }
+            // a legacy graph is folder/graph_xxxxxx/graph_xxxxxx[suffix].csv[.gz]
+            Matcher graphMatcher = GRAPH_FILE.matcher(file.getFileName().toString());
+            if (!graphMatcher.matches() || relative.getNameCount() < 2
+                    || !relative.getParent().getFileName().toString().equals(String.format("graph_%06d", Integer.parseInt(graphMatcher.group(1)))))
+                continue;
+            Path folder = relative.getNameCount() == 2 ? Path.of("") : relative.getParent().getParent();
+            int shard = ShardedGraphWriter.getShard(Integer.parseInt(graphMatcher.group(1)));
+            DatasetUnit unit = units.computeIfAbsent(folder + "/" + shard, k -> new DatasetUnit(folder, shard, false));
+            unit.files.add(relative);
+            if (graphMatcher.group(2).isEmpty())
+                unit.originals.add(relative);
+        }
+        return new ArrayList<>(units.values());
+    }
+
+    // the generator of a folder nXX/GEN[/variant], null for the exhaustively enumerated graphs of nXX[/variant]
+    private static String getGeneratorName(Path folder) {
+        for (int i = 0; i + 1 < folder.getNameCount(); i++) {
+            if (NUM_NODES.matcher(folder.getName(i).toString()).matches()) {
+                String name = folder.getName(i + 1).toString();
+                return DataAugUtils.isVariantFolder(name) ? null : name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * e.g., n07/ERP/0, unique in the dataset
+     */
+    public String getName() {
+        return folder + "/" + block;
+    }
+
+    /**
+     * Relative to the dataset
+     */
+    public Path getFolder() {
+        return folder;
+    }
+
+    public int getBlock() {
+        return block;
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    public boolean isDerived() {
+        return derived;
+    }
+
+    public String getGeneratorName() {
+        return generatorName;
+    }
+
+    /**
+     * Whether every original graph of the unit still has all the variants of DataAugUtils.VARIANTS:
+     * graph_xxxxxx[suffix].csv[.gz] next to each original in the legacy format, as listed by list(),
+     * the shard of the block with the same graph ids in every variant folder in the sharded one.
+     * False for a derived unit, or if a shard index cannot be read
+     */
+    public boolean hasAllVariants(Path dataset) {
+        if (derived)
+            return false;
+        if (!sharded) {
+            Set<Path> listed = new HashSet<>(files);
+            for (Path original : originals) {
+                String name = original.getFileName().toString(), stem = name.substring(0, name.indexOf(".csv"));
+                for (String suffix : DataAugUtils.VARIANTS) {
+                    if (!listed.contains(original.resolveSibling(stem + suffix + ".csv"))
+                            && !listed.contains(original.resolveSibling(stem + suffix + ".csv.gz")))
+                        return false;
+                }
+            }
+            return true;
+        }
+        try {
+            List<Integer> graphIds = ShardedGraphReader.listGraphIds(dataset.resolve(folder), block);
+            for (String suffix : DataAugUtils.VARIANTS) {
+                if (!graphIds.equals(ShardedGraphReader.listGraphIds(dataset.resolve(folder).resolve(suffix.substring(1)), block)))
+                    return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Visits the graphs of the unit in path order, i.e., by graph id, the variants of a legacy graph right after it
+     */
+    public void forEachGraph(Path dataset, GraphVisitor visitor) throws IOException {
+        forEachGraph(dataset, files, visitor);
+    }
+
+    /**
+     * Visits the original graphs of the unit by graph id, none if the unit is derived
+     */
+    public void forEachOriginal(Path dataset, GraphVisitor visitor) throws IOException {
+        if (!derived)
+            forEachGraph(dataset, originals, visitor);
+    }
+
+    private void forEachGraph(Path dataset, List<Path> legacyFiles, GraphVisitor visitor) throws IOException {
+        if (!sharded) {
+            for (Path file : legacyFiles) {
+                Matcher matcher = GRAPH_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches())
+                    throw new IllegalStateException("Not a graph file: " + file);
+                visitor.accept(Integer.parseInt(matcher.group(1)), file.toString(), CompressionUtils.readString(dataset.resolve(file)));
+            }
+            return;
+        }
+        int fromId = block * ShardedGraphWriter.GRAPHS_PER_SHARD + 1;
+        try {
+            ShardedGraphReader.forEachGraph(dataset.resolve(folder), fromId, fromId + ShardedGraphWriter.GRAPHS_PER_SHARD - 1, (graphId, content) -> {
+                try {
+                    visitor.accept(graphId, folder.resolve(String.format("graph_%06d", graphId)).toString(), content);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.gai.utils;
+
+import java.util.Arrays;
+
+/**
+ * Bounds on the diameter and the radius of a connected graph from a few BFS, for graphs too large for the BFS from every vertex.
+ * <p>
+ * Every vertex w keeps bounds lower[w] <= ecc(w) <= upper[w]. A BFS from v gives ecc(v), and for every w at distance d from v,
+ * max(d, ecc(v) - d) <= ecc(w) <= ecc(v) + d, so the diameter is in [max lower, max upper] and the radius in [min lower, min upper]
+ * (Takes and Kosters, "Determining the Diameter of Small World Networks").
+ * The first BFS starts from a vertex of maximum degree, then the sources alternate between the vertex of largest upper bound,
+ * a peripheral candidate (the next BFS of a double sweep), and the vertex of smallest lower bound, a central candidate.
+ * refine() stops as soon as both values are exact, or after the given number of BFS: the bounds are valid either way.
+ */
+public class EccentricityBounds {
+    private final CsrGraph g;
+    private final int[] lower, upper;
+    private final int[] dist, queue;
+    private int numOfBfs;
+
+    /**
+     * g must be connected and have at least one vertex
+     */
+    public EccentricityBounds(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        if (n == 0)
+            throw new IllegalArgumentException("Empty graph");
+        this.g = g;
+        this.lower = new int[n];
+        this.upper = new int[n];
+        Arrays.fill(upper, n - 1);
+        this.dist = new int[n];
+        this.queue = new int[n];
+    }
+
+    /**
+     * Runs BFS until the diameter and the radius are exact, at most maxNumOfBfs of them (in total over all calls)
+     */
+    public void refine(int maxNumOfBfs) {
+        while (numOfBfs < maxNumOfBfs && !isExact()) {
+            int s = numOfBfs == 0 ? maxDegreeVertex() : nextSource(numOfBfs % 2 == 1);
+            if (s < 0)
+                break;
+            bfs(s);
+            numOfBfs++;
+        }
+    }
+
+    public boolean isExact() {
+        return getDiameterLowerBound() == getDiameterUpperBound() && getRadiusLowerBound() == getRadiusUpperBound();
+    }
+
+    public int getNumOfBfs() {
+        return numOfBfs;
+    }
+
+    public int getDiameterLowerBound() {
+        int d = 0;
+        for (int l : lower)
+            d = Math.max(d, l);
+        return d;
+    }
+
+    public int getDiameterUpperBound() {
+        int d = 0;
+        for (int u : upper)
+            d = Math.max(d, u);
+        return d;
+    }
+
+    public int getRadiusLowerBound() {
+        int r = Integer.MAX_VALUE;
+        for (int l : lower)
+            r = Math.min(r, l);
+        return r;
+    }
+
+    public int getRadiusUpperBound() {
+        int r = Integer.MAX_VALUE;
+        for (int u : upper)
+            r = Math.min(r, u);
+        return r;
+    }
+
+    private int maxDegreeVertex() {
+        int s = 0;
+        for (int v = 1; v < g.getNumOfNodes(); v++) {
+            if (g.degreeOf(v) > g.degreeOf(s))
+                s = v;
+        }
+        return s;
+    }
+
+    // among the vertices whose eccentricity is not known yet, the one of largest upper bound, or of smallest lower bound,
+    // ties broken by degree; -1 if all are known, the bounds are then exact
+    private int nextSource(boolean peripheral) {
+        int s = -1;
+        for (int v = 0; v < g.getNumOfNodes(); v++) {
+            if (lower[v] == upper[v])
+                continue;
+            if (s < 0 || (peripheral ? upper[v] > upper[s] : lower[v] < lower[s])
+                    || (peripheral ? upper[v] == upper[s] : lower[v] == lower[s]) && g.degreeOf(v) > g.degreeOf(s))
+                s = v;
+        }
+        return s;
+    }
+
+    private void bfs(int s) {
+        Arrays.fill(dist, -1);
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        dist[s] = 0;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                int v = g.getNeighbor(u, i);
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        if (tail != g.getNumOfNodes())
+            throw new IllegalArgumentException("Disconnected graph");
+
+        int eccentricity = dist[queue[tail - 1]];
+        lower[s] = upper[s] = eccentricity;
+        for (int w = 0; w < g.getNumOfNodes(); w++) {
+            lower[w] = Math.max(lower[w], Math.max(dist[w], eccentricity - dist[w]));
+            upper[w] = Math.min(upper[w], eccentricity + dist[w]);
+        }
+    }
+}
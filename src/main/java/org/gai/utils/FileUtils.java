@@ -1,5 +1,6 @@
 package org.gai.utils;
 
+import org.gai.generate.MySbmGraphGenerator;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.util.Pair;
 import org.jgrapht.generate.GnmRandomBipartiteGraphGenerator;
@@ -9,10 +10,8 @@ import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.SimpleGraph;
 import org.jgrapht.util.SupplierUtil;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -20,7 +19,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class FileUtils {
-    public static void writeBipartiteVertices(Set<Integer> first, Set<Integer> second, FileWriter writer) throws IOException {
+    public static void writeBipartiteVertices(Set<Integer> first, Set<Integer> second, Writer writer) throws IOException {
         int firstSize = first.size(), secondSize = second.size();
         writer.write("First partition: ");
         for (Integer v : first) {
@@ -39,6 +38,22 @@ public class FileUtils {
         writer.write("\n");
     }
 
+    /**
+     * One line "Block i: v1, v2, ..." per block, as writeBipartiteVertices does for the two partitions
+     */
+    public static void writeBlockVertices(List<Set<Integer>> blocks, Writer writer) throws IOException {
+        for (int i = 0; i < blocks.size(); i++) {
+            int size = blocks.get(i).size();
+            writer.write("Block " + i + ": ");
+            for (Integer v : blocks.get(i)) {
+                writer.write(v.toString());
+                if (--size != 0)
+                    writer.write(", ");
+            }
+            writer.write("\n");
+        }
+    }
+
     public static void createFolders() {
         for (int i = 1; i <= 20; i++) {
             String folderName = String.format("n%02d", i);
@@ -52,7 +67,7 @@ public class FileUtils {
             if (!folder.mkdir())
                 System.out.println("Failed to create folder " + folderName);
         } else {
-            System.out.println("Folder " + folderName + " already exists.");
+            Metrics.println(Metrics.VERBOSITY_VERBOSE, "Folder " + folderName + " already exists.");
         }
     }
 
@@ -63,35 +78,133 @@ public class FileUtils {
             List<Pair<Integer, Integer>> edgeList,
             GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator,
             String info) {
-        try (FileWriter writer = new FileWriter(file)) {
-            if (generatorName != null)
-                writer.write("# " + generatorName + " graphs\n");
-            writer.write("# number of vertices: " + vertexSet.size() + "\n");
-            writer.write("# number of edges: " + edgeList.size() + "\n");
-
-            writer.write(info);
-            writer.write("\n");
-
-            if (graphGenerator != null) {
-                // Specifically for the case of bipartite graphs
-                // The two partitions are written at the beginning of the CSV files
-                if (generatorName.equals("Bipartite-ERP")) {
-                    GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
-                    writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
-                }
-                if (generatorName.equals("Bipartite-ERM")) {
-                    GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
-                    writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
-                }
-            }
+        try {
+            CompressionUtils.write(Path.of(CompressionUtils.getOutputName(file.getPath())), serializeGraph(generatorName, vertexSet, edgeList, graphGenerator, info));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    /**
+     * Returns the content of the CSV file of a graph
+     */
+    public static String serializeGraph(
+            String generatorName,
+            Set<Integer> vertexSet,
+            List<Pair<Integer, Integer>> edgeList,
+            GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator,
+            String info) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeHeader(writer, generatorName, vertexSet.size(), edgeList.size(), graphGenerator, info);
             for (Integer v : vertexSet)
                 writer.write(v.toString() + "\n");
             for (Pair<Integer, Integer> e : edgeList)
                 writer.write(e.getFirst().toString() + " " + e.getSecond().toString() + "\n");
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e); // never thrown by a StringWriter
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Returns the content of the CSV file of a graph, vertices in id order and edges in edge order
+     */
+    public static String serializeGraph(
+            String generatorName,
+            CsrGraph g,
+            GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator,
+            String info) {
+        StringWriter writer = new StringWriter(32 + 4 * g.getNumOfNodes() + 8 * g.getNumOfEdges());
+        try {
+            writeHeader(writer, generatorName, g.getNumOfNodes(), g.getNumOfEdges(), graphGenerator, info);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // never thrown by a StringWriter
         }
+        StringBuffer buffer = writer.getBuffer();
+        for (int v = 0; v < g.getNumOfNodes(); v++)
+            buffer.append(v).append('\n');
+        for (int e = 0; e < g.getNumOfEdges(); e++)
+            buffer.append(g.getEdgeSource(e)).append(' ').append(g.getEdgeTarget(e)).append('\n');
+        return buffer.toString();
+    }
+
+    private static void writeHeader(
+            Writer writer,
+            String generatorName,
+            int numOfNodes,
+            int numOfEdges,
+            GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator,
+            String info) throws IOException {
+        if (generatorName != null)
+            writer.write("# " + generatorName + " graphs\n");
+        writer.write("# number of vertices: " + numOfNodes + "\n");
+        writer.write("# number of edges: " + numOfEdges + "\n");
+
+        if (info != null) {
+            writer.write(info);
+            writer.write("\n");
+        }
+
+        if (graphGenerator != null) {
+            // Specifically for the case of bipartite graphs
+            // The two partitions are written at the beginning of the CSV files
+            if (generatorName.equals("Bipartite-ERP")) {
+                GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
+                writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
+            }
+            if (generatorName.equals("Bipartite-ERM")) {
+                GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
+                writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
+            }
+            // and so are the blocks of the stochastic block model
+            if (generatorName.equals("SBM")) {
+                MySbmGraphGenerator sbm = (MySbmGraphGenerator) graphGenerator;
+                writeBlockVertices(sbm.getBlocks(), writer);
+            }
+        }
+    }
+
+    /**
+     * ./dataset/nxx/generatorName, or ./dataset/nxx for the exhaustively enumerated graphs (generatorName == null)
+     */
+    public static String getGraphFolder(int n, String generatorName) {
+        String numNodes = String.format("n%02d", n);
+        return generatorName == null ? "./dataset/" + numNodes : "./dataset/" + numNodes + "/" + generatorName;
+    }
+
+    /**
+     * Opens the sink of the graphs in the given folder, which must already exist for the legacy format
+     */
+    public static GraphSink openGraphSink(OutputFormat format, String folder) {
+        return openGraphSink(format, folder, "");
+    }
+
+    /**
+     * Opens the sink of a variant of the graphs in the given folder, e.g., suffix "-node-shift-1" for augmented graphs.
+     * Legacy : folder/graph_xxxxxx/graph_xxxxxx[suffix].csv[.gz], next to the original graph
+     * Shard : folder/[suffix without the leading '-']/shard_xxxxxx.dat and .idx
+     */
+    public static GraphSink openGraphSink(OutputFormat format, String folder, String suffix) {
+        if (format == OutputFormat.SHARD)
+            return new ShardedGraphWriter(suffix.isEmpty() ? Path.of(folder) : Path.of(folder, suffix.substring(1)), CompressionUtils.isCompressOutput());
+
+        return new GraphSink() {
+            @Override
+            public void write(int graphId, String content) throws IOException {
+                String graphName = String.format("graph_%06d", graphId);
+                // create folder folder/graphxxxxxx/, the folder of a variant is usually the one of its original graph
+                if (suffix.isEmpty())
+                    createFolder(folder, graphName);
+                else
+                    Files.createDirectories(Path.of(folder, graphName));
+                CompressionUtils.write(Path.of(folder, graphName, CompressionUtils.getOutputName(graphName + suffix + ".csv")), content);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
     }
 
     public static void writeGraph(
@@ -112,37 +225,135 @@ public class FileUtils {
     }
 
     public static Pair<Set<Integer>, List<Pair<Integer, Integer>>> readGraph(String read) {
-        List<Pair<Integer, Integer>> edgeList;
-        Set<Integer> vertexSet;
-        Scanner scanner;
+        try (Scanner scanner = new Scanner(CompressionUtils.newInputStream(Path.of(read)), StandardCharsets.UTF_8)) {
+            Metrics.println(Metrics.VERBOSITY_VERBOSE, "Loading graph: " + read);
+            return parseGraph(scanner);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads graph_(graphId) of the given generator on n vertices (generatorName == null for the exhaustively enumerated graphs),
+     * from the shard files if the folder is sharded, otherwise from its CSV file
+     */
+    public static Pair<Set<Integer>, List<Pair<Integer, Integer>>> readGraph(int n, String generatorName, int graphId) {
+        return parseGraph(new Scanner(readGraphContent(n, generatorName, graphId)));
+    }
+
+    public static CsrGraph readCsrGraph(String read) {
+        try {
+            return parseCsrGraph(CompressionUtils.readString(Path.of(read)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static CsrGraph readCsrGraph(int n, String generatorName, int graphId) {
+        return parseCsrGraph(readGraphContent(n, generatorName, graphId));
+    }
+
+    private static String readGraphContent(int n, String generatorName, int graphId) {
+        Path folder = Path.of(getGraphFolder(n, generatorName));
+        return readGraphContent(folder, ShardedGraphReader.isSharded(folder), graphId);
+    }
+
+    static String readGraphContent(Path folder, boolean sharded, int graphId) {
         try {
-            scanner = new Scanner(new File(read));
-            edgeList = new ArrayList<>();
-            vertexSet = new HashSet<>();
-            System.out.println("Loading graph: " + read);
-            while (scanner.hasNext()) {
-                String line = scanner.nextLine();
-                if (line.startsWith("#"))
-                    continue;
-                String[] data = line.split(" ");
-
-                if (data.length == 1) { // vertex line
-                    vertexSet.add(Integer.parseInt(data[0]));
-                } else if (data.length == 2) { // edge line
-                    edgeList.add(Pair.of(
-                            Integer.parseInt(data[0]),
-                            Integer.parseInt(data[1])
-                    ));
+            if (!sharded) {
+                String graphName = String.format("graph_%06d", graphId);
+                return CompressionUtils.readString(CompressionUtils.resolveInput(folder.resolve(graphName).resolve(graphName + ".csv")));
+            }
+            String content = ShardedGraphReader.readGraph(folder, graphId);
+            if (content == null)
+                throw new NoSuchElementException("No graph " + graphId + " in " + folder);
+            return content;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses the content of a CSV graph file without boxing, the vertices must be 0, 1, ..., n - 1.
+     * Like parseGraph, a line with one number is a vertex, a line with two numbers is an edge, and any other line is skipped.
+     */
+    public static CsrGraph parseCsrGraph(CharSequence content) {
+        int[] sources = new int[16], targets = new int[16];
+        int m = 0, numOfNodes = 0;
+        int[] numbers = new int[2];
+
+        int length = content.length();
+        for (int start = 0; start < length; ) {
+            int end = start;
+            while (end < length && content.charAt(end) != '\n')
+                end++;
+
+            int count = parseNumbers(content, start, end, numbers);
+            if (count == 1) {
+                numOfNodes = Math.max(numOfNodes, numbers[0] + 1);
+            } else if (count == 2) {
+                if (m == sources.length) {
+                    sources = Arrays.copyOf(sources, 2 * m);
+                    targets = Arrays.copyOf(targets, 2 * m);
                 }
+                sources[m] = numbers[0];
+                targets[m++] = numbers[1];
+            }
+            start = end + 1;
+        }
+        return new CsrGraph(numOfNodes, Arrays.copyOf(sources, m), Arrays.copyOf(targets, m));
+    }
+
+    // parses a line of at most two space separated non-negative numbers, returns how many, or -1 for any other line
+    private static int parseNumbers(CharSequence content, int start, int end, int[] numbers) {
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            if (count == 2 || !Character.isDigit(content.charAt(i)))
+                return -1;
+            int value = 0;
+            while (i < end && Character.isDigit(content.charAt(i)))
+                value = value * 10 + (content.charAt(i++) - '0');
+            numbers[count++] = value;
+            if (i < end) {
+                if (content.charAt(i) != ' ')
+                    return -1;
+                i++;
+            }
+        }
+        return count;
+    }
+
+    public static Pair<Set<Integer>, List<Pair<Integer, Integer>>> parseGraph(Scanner scanner) {
+        List<Pair<Integer, Integer>> edgeList = new ArrayList<>();
+        Set<Integer> vertexSet = new HashSet<>();
+        while (scanner.hasNext()) {
+            String line = scanner.nextLine();
+            if (line.startsWith("#"))
+                continue;
+            String[] data = line.split(" ");
+
+            if (data.length == 1) { // vertex line
+                vertexSet.add(Integer.parseInt(data[0]));
+            } else if (data.length == 2) { // edge line
+                edgeList.add(Pair.of(
+                        Integer.parseInt(data[0]),
+                        Integer.parseInt(data[1])
+                ));
             }
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
         }
         return Pair.of(vertexSet, edgeList);
     }
 
     public static Graph<Integer, DefaultEdge> getGraph(String read) {
-        Pair<Set<Integer>, List<Pair<Integer, Integer>>> pair = readGraph(read);
+        return toGraph(readGraph(read));
+    }
+
+    public static Graph<Integer, DefaultEdge> getGraph(int n, String generatorName, int graphId) {
+        return toGraph(readGraph(n, generatorName, graphId));
+    }
+
+    private static Graph<Integer, DefaultEdge> toGraph(Pair<Set<Integer>, List<Pair<Integer, Integer>>> pair) {
         SimpleGraph<Integer, DefaultEdge> graph = new SimpleGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), false);
         for (Integer v : pair.getFirst())
             graph.addVertex(v);
@@ -171,7 +382,10 @@ public class FileUtils {
         }
         for (Path p : pathList) {
             try {
-                List<String> lines = Files.readAllLines(p);
+                List<String> lines;
+                try (BufferedReader reader = CompressionUtils.newReader(p)) {
+                    lines = reader.lines().collect(Collectors.toList());
+                }
 
                 for (String line : lines) {
                     String temp = line.replace(" language <GDL>. ", ".\n<GDL>\nInstruction: ");
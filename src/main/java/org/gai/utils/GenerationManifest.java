@@ -0,0 +1,228 @@
+package org.gai.utils;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint of a generation run, ./dataset/manifest[_shard_i_of_N].txt.
+ * <p>
+ * The first line records the options the dataset depends on, then one line is appended and synced to disk
+ * whenever a unit of work (a task of GraphGenUtil.generate) has written all its graphs:
+ * unit first_graph_id number_of_graphs crc32
+ * where the CRC32 covers the ids and the (uncompressed) contents of the graphs of the unit, in id order.
+ * A line cut short by a crash is ignored, so the unit it belongs to is generated again.
+ * <p>
+ * On resume, a unit is skipped iff it is in the manifest and its graphs still have the recorded checksum.
+ * <p>
+ * The augmentation of DataAugUtils keeps its own manifest, ./dataset/augmentation_manifest.txt, in the same format:
+ * its units are the DatasetUnits of original graphs, and the checksum covers their original graphs, so a unit is augmented again
+ * whenever its graphs were generated again.
+ */
+public class GenerationManifest implements Closeable {
+    private static final String HEADER = "# graphgen manifest ";
+
+    private final Map<String, String[]> completed = new HashMap<>();
+    private final FileOutputStream out;
+
+    private GenerationManifest(Path path, String config, boolean resume) throws IOException {
+        boolean append = resume && Files.exists(path);
+        if (append) {
+            String text = Files.readString(path, StandardCharsets.UTF_8);
+            // drop a last line cut short by a crash
+            int end = text.lastIndexOf('\n') + 1;
+            String[] lines = text.substring(0, end).split("\n");
+            if (end == 0 || !lines[0].equals(HEADER + config))
+                throw new IllegalArgumentException("Manifest " + path + " was written with other options: "
+                        + (end == 0 ? "" : lines[0].substring(Math.min(lines[0].length(), HEADER.length()))));
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].split(" ");
+                if (fields.length == 4)
+                    completed.put(fields[0], fields);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(text.substring(0, end).getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+        this.out = new FileOutputStream(path.toFile(), append);
+        if (!append)
+            writeLine(HEADER + config);
+    }
+
+    /**
+     * Opens the manifest of the run, appending to the existing one if resuming, otherwise starting a new one
+     */
+    public static GenerationManifest open(GenerationOptions options) {
+        Path path = getPath(options);
+        try {
+            return new GenerationManifest(path, getConfig(options), options.isResume());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the manifest of the augmentation of the dataset, see DataAugUtils.augment()
+     */
+    public static GenerationManifest openAugmentation(GenerationOptions options) {
+        try {
+            return new GenerationManifest(getAugmentationPath(), getAugmentationConfig(options), options.isResume());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Path getAugmentationPath() {
+        return Path.of("./dataset", "augmentation_manifest.txt");
+    }
+
+    public static Path getPath(GenerationOptions options) {
+        if (options.getNumOfShards() == 1)
+            return Path.of("./dataset", "manifest.txt");
+        return Path.of("./dataset", String.format("manifest_shard_%d_of_%d.txt", options.getShardIndex(), options.getNumOfShards()));
+    }
+
+    /**
+     * Returns the master seed recorded in an existing manifest, or null if there is none
+     */
+    public static Long readMasterSeed(GenerationOptions options) {
+        return readMasterSeed(getPath(options));
+    }
+
+    public static Long readMasterSeed(Path path) {
+        if (!Files.exists(path))
+            return null;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER))
+                return null;
+            for (String field : header.substring(HEADER.length()).split(" ")) {
+                if (field.startsWith("seed="))
+                    return Long.parseLong(field.substring("seed=".length()));
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the options that change the graphs of a unit
+    private static String getConfig(GenerationOptions options) {
+        return "seed=" + options.getMasterSeed()
+                + " shard=" + options.getShardIndex() + "/" + options.getNumOfShards()
+                + " exhaustive=" + options.getExhaustiveMode() + ":" + options.getMaxExhaustiveNodes()
+                + " format=" + options.getOutputFormat()
+                + " dedup=" + options.getDedupMode() + ":" + options.getSaturationThreshold()
+                + " pipeline=" + options.isPipeline()
+                + " persist=" + options.isPersisted(GenerationOptions.PERSIST_GRAPHS) + "," + options.isPersisted(GenerationOptions.PERSIST_AUGMENTED);
+    }
+
+    // the options that change the variants of a graph
+    private static String getAugmentationConfig(GenerationOptions options) {
+        return "seed=" + options.getMasterSeed();
+    }
+
+    /**
+     * Whether the unit is recorded as completed and its graphs in the folder of (n, generatorName) still match the checksum
+     */
+    public boolean isCompleted(String unitName, int n, String generatorName) {
+        return isCompleted(unitName, Path.of(FileUtils.getGraphFolder(n, generatorName)));
+    }
+
+    /**
+     * Whether the unit is recorded as completed and its (original) graphs in the folder still match the checksum
+     */
+    public boolean isCompleted(String unitName, Path folder) {
+        String[] fields = completed.get(unitName); // not modified after the constructor
+        if (fields == null)
+            return false;
+
+        int firstGraphId = Integer.parseInt(fields[1]), numOfGraphs = Integer.parseInt(fields[2]);
+        Unit unit = new Unit(unitName);
+        try {
+            if (numOfGraphs > 0 && ShardedGraphReader.isSharded(folder)) {
+                ShardedGraphReader.forEachGraph(folder, firstGraphId, firstGraphId + numOfGraphs - 1, unit::update);
+            } else {
+                for (int id = firstGraphId; id < firstGraphId + numOfGraphs; id++)
+                    unit.update(id, FileUtils.readGraphContent(folder, false, id));
+            }
+        } catch (IOException | RuntimeException e) {
+            return false; // missing or unreadable graph
+        }
+        return unit.numOfGraphs == numOfGraphs && Long.toHexString(unit.crc.getValue()).equals(fields[3]);
+    }
+
+    public Unit newUnit(String unitName) {
+        return new Unit(unitName);
+    }
+
+    /**
+     * Records the unit as completed, once all its graphs were written
+     */
+    public synchronized void complete(Unit unit) {
+        try {
+            writeLine(unit.name + " " + unit.firstGraphId + " " + unit.numOfGraphs + " " + Long.toHexString(unit.crc.getValue()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.getFD().sync();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * The graphs written by one unit of work, which must have consecutive ids
+     */
+    public static class Unit {
+        private final String name;
+        private final CRC32 crc = new CRC32();
+        private int firstGraphId = 0, numOfGraphs = 0;
+
+        private Unit(String name) {
+            this.name = name;
+        }
+
+        public void update(int graphId, String content) {
+            if (numOfGraphs == 0)
+                firstGraphId = graphId;
+            else if (graphId != firstGraphId + numOfGraphs)
+                throw new IllegalArgumentException("Graph " + graphId + " does not follow graph " + (firstGraphId + numOfGraphs - 1));
+            numOfGraphs++;
+            crc.update(new byte[]{(byte) (graphId >>> 24), (byte) (graphId >>> 16), (byte) (graphId >>> 8), (byte) graphId});
+            crc.update(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Wraps a sink so that the graphs written to it are added to the checksum, null stays null
+         */
+        public GraphSink wrap(GraphSink sink) {
+            if (sink == null)
+                return null;
+            return new GraphSink() {
+                @Override
+                public void write(int graphId, String content) throws IOException {
+                    update(graphId, content);
+                    sink.write(graphId, content);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    sink.close();
+                }
+            };
+        }
+    }
+}
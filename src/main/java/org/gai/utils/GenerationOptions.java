@@ -0,0 +1,409 @@
+package org.gai.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class GenerationOptions {
+    public enum ExhaustiveMode {
+        LABELED, // all 2^(n(n-1)/2) labeled graphs
+        NON_ISOMORPHIC // one graph per isomorphism class
+    }
+
+    // artifacts of the pipeline mode that can be written to ./dataset
+    public static final String PERSIST_GRAPHS = "graphs";
+    public static final String PERSIST_AUGMENTED = "augmented";
+
+    private int numOfThreads = 1;
+    private long masterSeed = System.nanoTime();
+    private boolean masterSeedSet = false;
+    private int shardIndex = 0;
+    private int numOfShards = 1;
+    private ExhaustiveMode exhaustiveMode = ExhaustiveMode.LABELED;
+    private int maxExhaustiveNodes = 6;
+    private OutputFormat outputFormat = OutputFormat.LEGACY;
+    private GraphDeduplicator.Mode dedupMode = GraphDeduplicator.Mode.NONE;
+    private double saturationThreshold = 0.99;
+    private boolean pipeline = false;
+    private boolean compressed = false;
+    private boolean asyncWrites = false;
+    private boolean resume = false;
+    private List<Integer> largeNodes = List.of();
+    private int numOfLargeGraphs = 1;
+    private double averageDegree = 10;
+    private Set<String> persisted = Set.of();
+    private int verbosity = Metrics.VERBOSITY_NORMAL;
+    private long progressInterval = 10;
+    private Set<String> properties = GraphProperties.PROPERTIES;
+    private boolean propertiesSet = false;
+    private PropertyWriter.Encoding propertyEncoding = PropertyWriter.Encoding.LEGACY;
+    private int largeGraphThreshold = GraphProperties.DEFAULT_LARGE_GRAPH_THRESHOLD;
+
+    /**
+     * Supported arguments:
+     * --threads k : number of worker threads
+     * --seed s : master seed of all random streams, a fresh one is drawn when absent
+     * --shard i/N : only generate the i-th (0-based) of N disjoint slices of the dataset
+     * --exhaustive labeled|non-isomorphic : how the graphs with few vertices are enumerated
+     * --exhaustive-nodes k : enumerate all graphs with 1 to k vertices
+     * --format legacy|shard : one folder and one CSV file per graph, or packed shard files
+     * --dedup none|exact|isomorphic : drop random graphs equal to an earlier graph of the same (n, generator) pair
+     * --saturation r : with deduplication, stop a generator once a share r of its recent draws were repeats
+     * --pipeline : pass every graph through augmentation, properties and prompts in memory, see GraphPipeline
+     * --large-nodes n1,n2,... : instead of the dataset, stream graphs with n1, n2, ... vertices to ./dataset/large, see GraphGenUtil.generateLargeGraphs
+     * --large-graphs k : number of large graphs per (n, generator) pair
+     * --avg-degree d : expected average degree of the large random graphs
+     * --persist graphs,augmented : in the pipeline mode, also write the generated and/or the augmented graphs to ./dataset
+     * --compress : gzip the graph, property and prompt files, see CompressionUtils
+     * --async-writes : write the files on dedicated I/O threads, see AsyncWriter
+     * --resume : skip the units of work recorded as completed in the manifest, see GenerationManifest,
+     * the master seed of the manifest is used when --seed is absent
+     * --verbosity quiet|normal|verbose : console output, the per-file lines are only printed when verbose, see Metrics
+     * --progress s : print the progress line every s seconds, 0 to disable
+     * --properties p1,p2,... : the properties computed by PropertyDriver and GraphPipeline, all of GraphProperties.PROPERTIES by default,
+     * without GraphProperties.QUADRATIC_PROPERTIES on the graphs above the large threshold
+     * --encoding legacy|compact : how vertex pairs, vertex sequences and infinite lengths are written in the property files, see PropertyWriter
+     * --large-threshold n : the properties of graphs with more than n vertices use the scalable algorithms, see GraphProperties.isLarge()
+     */
+    public static GenerationOptions parse(String[] args) {
+        GenerationOptions options = new GenerationOptions();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    options.setNumOfThreads(Integer.parseInt(getValue(args, ++i)));
+                    break;
+                case "--seed":
+                    options.setMasterSeed(Long.parseLong(getValue(args, ++i)));
+                    break;
+                case "--shard":
+                    String[] shard = getValue(args, ++i).split("/");
+                    if (shard.length != 2)
+                        throw new IllegalArgumentException("Shard must be of the form i/N");
+                    options.setShard(Integer.parseInt(shard[0]), Integer.parseInt(shard[1]));
+                    break;
+                case "--exhaustive":
+                    options.setExhaustiveMode(ExhaustiveMode.valueOf(getValue(args, ++i).toUpperCase().replace('-', '_')));
+                    break;
+                case "--exhaustive-nodes":
+                    options.setMaxExhaustiveNodes(Integer.parseInt(getValue(args, ++i)));
+                    break;
+                case "--format":
+                    options.setOutputFormat(OutputFormat.valueOf(getValue(args, ++i).toUpperCase()));
+                    break;
+                case "--dedup":
+                    options.setDedupMode(GraphDeduplicator.Mode.valueOf(getValue(args, ++i).toUpperCase()));
+                    break;
+                case "--saturation":
+                    options.setSaturationThreshold(Double.parseDouble(getValue(args, ++i)));
+                    break;
+                case "--pipeline":
+                    options.setPipeline(true);
+                    break;
+                case "--compress":
+                    options.setCompressed(true);
+                    break;
+                case "--async-writes":
+                    options.setAsyncWrites(true);
+                    break;
+                case "--resume":
+                    options.setResume(true);
+                    break;
+                case "--large-nodes":
+                    List<Integer> largeNodes = new ArrayList<>();
+                    for (String n : getValue(args, ++i).split(","))
+                        largeNodes.add(Integer.parseInt(n));
+                    options.setLargeNodes(largeNodes);
+                    break;
+                case "--large-graphs":
+                    options.setNumOfLargeGraphs(Integer.parseInt(getValue(args, ++i)));
+                    break;
+                case "--avg-degree":
+                    options.setAverageDegree(Double.parseDouble(getValue(args, ++i)));
+                    break;
+                case "--persist":
+                    options.setPersisted(Set.of(getValue(args, ++i).split(",")));
+                    break;
+                case "--verbosity":
+                    options.setVerbosity(parseVerbosity(getValue(args, ++i)));
+                    break;
+                case "--progress":
+                    options.setProgressInterval(Long.parseLong(getValue(args, ++i)));
+                    break;
+                case "--properties":
+                    options.setProperties(Set.of(getValue(args, ++i).split(",")));
+                    break;
+                case "--encoding":
+                    options.setPropertyEncoding(PropertyWriter.Encoding.valueOf(getValue(args, ++i).toUpperCase()));
+                    break;
+                case "--large-threshold":
+                    options.setLargeGraphThreshold(Integer.parseInt(getValue(args, ++i)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static String getValue(String[] args, int i) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        return args[i];
+    }
+
+    private static int parseVerbosity(String verbosity) {
+        switch (verbosity) {
+            case "quiet":
+                return Metrics.VERBOSITY_QUIET;
+            case "normal":
+                return Metrics.VERBOSITY_NORMAL;
+            case "verbose":
+                return Metrics.VERBOSITY_VERBOSE;
+            default:
+                throw new IllegalArgumentException("Unknown verbosity " + verbosity);
+        }
+    }
+
+    public int getNumOfThreads() {
+        return numOfThreads;
+    }
+
+    public GenerationOptions setNumOfThreads(int numOfThreads) {
+        if (numOfThreads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        this.numOfThreads = numOfThreads;
+        return this;
+    }
+
+    public long getMasterSeed() {
+        return masterSeed;
+    }
+
+    public GenerationOptions setMasterSeed(long masterSeed) {
+        this.masterSeed = masterSeed;
+        this.masterSeedSet = true;
+        return this;
+    }
+
+    /**
+     * Whether the master seed was set, rather than drawn from the clock
+     */
+    public boolean isMasterSeedSet() {
+        return masterSeedSet;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getNumOfShards() {
+        return numOfShards;
+    }
+
+    public GenerationOptions setShard(int shardIndex, int numOfShards) {
+        if (numOfShards < 1 || shardIndex < 0 || shardIndex >= numOfShards)
+            throw new IllegalArgumentException("Shard index must be in [0, " + numOfShards + ")");
+        this.shardIndex = shardIndex;
+        this.numOfShards = numOfShards;
+        return this;
+    }
+
+    public ExhaustiveMode getExhaustiveMode() {
+        return exhaustiveMode;
+    }
+
+    public GenerationOptions setExhaustiveMode(ExhaustiveMode exhaustiveMode) {
+        this.exhaustiveMode = exhaustiveMode;
+        return this;
+    }
+
+    public int getMaxExhaustiveNodes() {
+        return maxExhaustiveNodes;
+    }
+
+    public GenerationOptions setMaxExhaustiveNodes(int maxExhaustiveNodes) {
+        if (maxExhaustiveNodes < 0)
+            throw new IllegalArgumentException("Number of vertices must be non-negative");
+        this.maxExhaustiveNodes = maxExhaustiveNodes;
+        return this;
+    }
+
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    public GenerationOptions setOutputFormat(OutputFormat outputFormat) {
+        this.outputFormat = outputFormat;
+        return this;
+    }
+
+    public GraphDeduplicator.Mode getDedupMode() {
+        return dedupMode;
+    }
+
+    public GenerationOptions setDedupMode(GraphDeduplicator.Mode dedupMode) {
+        this.dedupMode = dedupMode;
+        return this;
+    }
+
+    public double getSaturationThreshold() {
+        return saturationThreshold;
+    }
+
+    public GenerationOptions setSaturationThreshold(double saturationThreshold) {
+        if (saturationThreshold <= 0 || saturationThreshold > 1)
+            throw new IllegalArgumentException("Saturation threshold must be in (0, 1]");
+        this.saturationThreshold = saturationThreshold;
+        return this;
+    }
+
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    public GenerationOptions setPipeline(boolean pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public GenerationOptions setCompressed(boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    public boolean isAsyncWrites() {
+        return asyncWrites;
+    }
+
+    public GenerationOptions setAsyncWrites(boolean asyncWrites) {
+        this.asyncWrites = asyncWrites;
+        return this;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public GenerationOptions setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    public List<Integer> getLargeNodes() {
+        return largeNodes;
+    }
+
+    public GenerationOptions setLargeNodes(List<Integer> largeNodes) {
+        for (int n : largeNodes) {
+            if (n < 2)
+                throw new IllegalArgumentException("Number of vertices must be at least 2");
+        }
+        this.largeNodes = List.copyOf(largeNodes);
+        return this;
+    }
+
+    public int getNumOfLargeGraphs() {
+        return numOfLargeGraphs;
+    }
+
+    public GenerationOptions setNumOfLargeGraphs(int numOfLargeGraphs) {
+        if (numOfLargeGraphs < 0)
+            throw new IllegalArgumentException("Number of graphs must be non-negative");
+        this.numOfLargeGraphs = numOfLargeGraphs;
+        return this;
+    }
+
+    public double getAverageDegree() {
+        return averageDegree;
+    }
+
+    public GenerationOptions setAverageDegree(double averageDegree) {
+        if (averageDegree <= 0)
+            throw new IllegalArgumentException("Average degree must be positive");
+        this.averageDegree = averageDegree;
+        return this;
+    }
+
+    /**
+     * Whether the given artifact is written to ./dataset, the generated graphs always are outside the pipeline mode
+     */
+    public boolean isPersisted(String artifact) {
+        return !pipeline && artifact.equals(PERSIST_GRAPHS) || persisted.contains(artifact);
+    }
+
+    public GenerationOptions setPersisted(Set<String> persisted) {
+        for (String artifact : persisted) {
+            if (!artifact.equals(PERSIST_GRAPHS) && !artifact.equals(PERSIST_AUGMENTED))
+                throw new IllegalArgumentException("Unknown artifact " + artifact);
+        }
+        this.persisted = Set.copyOf(persisted);
+        return this;
+    }
+
+    public int getVerbosity() {
+        return verbosity;
+    }
+
+    public GenerationOptions setVerbosity(int verbosity) {
+        if (verbosity < Metrics.VERBOSITY_QUIET || verbosity > Metrics.VERBOSITY_VERBOSE)
+            throw new IllegalArgumentException("Unknown verbosity " + verbosity);
+        this.verbosity = verbosity;
+        return this;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    public GenerationOptions setProgressInterval(long progressInterval) {
+        if (progressInterval < 0)
+            throw new IllegalArgumentException("Progress interval must be non-negative");
+        this.progressInterval = progressInterval;
+        return this;
+    }
+
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    public GenerationOptions setProperties(Set<String> properties) {
+        for (String property : properties) {
+            if (!GraphProperties.PROPERTIES.contains(property))
+                throw new IllegalArgumentException("Unknown property " + property);
+        }
+        this.properties = Set.copyOf(properties);
+        this.propertiesSet = true;
+        return this;
+    }
+
+    /**
+     * Whether the properties were set, rather than left to the default set
+     */
+    public boolean isPropertiesSet() {
+        return propertiesSet;
+    }
+
+    public PropertyWriter.Encoding getPropertyEncoding() {
+        return propertyEncoding;
+    }
+
+    public GenerationOptions setPropertyEncoding(PropertyWriter.Encoding propertyEncoding) {
+        this.propertyEncoding = propertyEncoding;
+        return this;
+    }
+
+    public int getLargeGraphThreshold() {
+        return largeGraphThreshold;
+    }
+
+    public GenerationOptions setLargeGraphThreshold(int largeGraphThreshold) {
+        if (largeGraphThreshold < 0)
+            throw new IllegalArgumentException("Large graph threshold must be non-negative");
+        this.largeGraphThreshold = largeGraphThreshold;
+        return this;
+    }
+}
@@ -0,0 +1,157 @@
+package org.gai.utils;
+
+import org.jgrapht.alg.isomorphism.VF2GraphIsomorphismInspector;
+
+import java.util.*;
+
+/**
+ * Detects repeated graphs among the graphs drawn by a random generator, and whether the generator is saturated,
+ * i.e., whether almost all of its recent draws were repeats.
+ * <p>
+ * EXACT : two graphs are equal iff they have the same edges (as unordered pairs)
+ * ISOMORPHIC : two graphs are equal iff they are isomorphic. Up to CanonicalForm.MAX_NODES vertices, the key is the canonical code.
+ * Above that, graphs are bucketed by a color refinement (1-WL) hash and the candidates of a bucket are compared with VF2.
+ */
+public class GraphDeduplicator {
+    public enum Mode {
+        NONE, EXACT, ISOMORPHIC
+    }
+
+    private final Mode mode;
+    private final int n;
+    private final CanonicalForm canonicalForm;
+    private final Set<Object> keys = new HashSet<>();
+    private final Map<Long, List<CsrGraph>> buckets = new HashMap<>();
+
+    // the last window draws, as a ring buffer of whether each draw was a repeat
+    private final boolean[] window;
+    private int numOfDraws, numOfUnique, numOfRepeatsInWindow;
+
+    public GraphDeduplicator(Mode mode, int n, int windowSize) {
+        if (mode == Mode.NONE)
+            throw new IllegalArgumentException("Mode must be EXACT or ISOMORPHIC");
+        this.mode = mode;
+        this.n = n;
+        this.canonicalForm = mode == Mode.ISOMORPHIC && n <= CanonicalForm.MAX_NODES ? new CanonicalForm(n) : null;
+        this.window = new boolean[windowSize];
+    }
+
+    /**
+     * Records a draw, returns true iff no equal graph was drawn before
+     */
+    public boolean add(CsrGraph g) {
+        if (g.getNumOfNodes() != n)
+            throw new IllegalArgumentException("Graph must have " + n + " vertices");
+
+        boolean isNew;
+        if (mode == Mode.EXACT)
+            isNew = keys.add(getEdgeBits(g));
+        else if (canonicalForm != null)
+            isNew = keys.add(canonicalForm.canonicalCode(getAdjacency(g)));
+        else
+            isNew = addToBucket(g);
+
+        int slot = numOfDraws % window.length;
+        if (numOfDraws >= window.length && window[slot])
+            numOfRepeatsInWindow--;
+        window[slot] = !isNew;
+        if (!isNew)
+            numOfRepeatsInWindow++;
+
+        numOfDraws++;
+        if (isNew)
+            numOfUnique++;
+        return isNew;
+    }
+
+    /**
+     * Returns true once a full window of draws has been recorded and the share of repeats in it reached the threshold
+     */
+    public boolean isSaturated(double threshold) {
+        return numOfDraws >= window.length && numOfRepeatsInWindow >= threshold * window.length;
+    }
+
+    public int getNumOfDraws() {
+        return numOfDraws;
+    }
+
+    public int getNumOfUnique() {
+        return numOfUnique;
+    }
+
+    private boolean addToBucket(CsrGraph g) {
+        List<CsrGraph> bucket = buckets.computeIfAbsent(getRefinementHash(g), k -> new ArrayList<>(1));
+        for (CsrGraph other : bucket) {
+            if (other.getNumOfEdges() == g.getNumOfEdges()
+                    && new VF2GraphIsomorphismInspector<>(other.asGraph(), g.asGraph()).isomorphismExists())
+                return false;
+        }
+        bucket.add(g);
+        return true;
+    }
+
+    // bit u * n + v, u < v, is set iff (u,v) is an edge
+    private static BitSet getEdgeBits(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        BitSet bits = new BitSet(n * n);
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            bits.set(Math.min(u, v) * n + Math.max(u, v));
+        }
+        return bits;
+    }
+
+    private static int[] getAdjacency(CsrGraph g) {
+        int[] adjacency = new int[g.getNumOfNodes()];
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            adjacency[u] |= 1 << v;
+            adjacency[v] |= 1 << u;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Hash of the stable coloring of color refinement, started from the degrees.
+     * Colors are renumbered by the rank of their signatures in every round, so the hash does not depend on the labeling.
+     */
+    private static long getRefinementHash(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        int[] colors = new int[n];
+        for (int v = 0; v < n; v++)
+            colors[v] = g.degreeOf(v);
+
+        long hash = RandomUtils.mix64(n * 31L + g.getNumOfEdges());
+        long[] signatures = new long[n], sorted = new long[n];
+        int[] neighborColors = new int[n];
+        int numOfColors = -1;
+        for (int round = 0; round < n; round++) {
+            for (int v = 0; v < n; v++) {
+                int degree = g.degreeOf(v);
+                for (int i = 0; i < degree; i++)
+                    neighborColors[i] = colors[g.getNeighbor(v, i)];
+                Arrays.sort(neighborColors, 0, degree);
+                long signature = RandomUtils.mix64(colors[v]);
+                for (int i = 0; i < degree; i++)
+                    signature = RandomUtils.mix64(signature + neighborColors[i]);
+                signatures[v] = signature;
+            }
+
+            System.arraycopy(signatures, 0, sorted, 0, n);
+            Arrays.sort(sorted);
+            int numOfDistinct = 0;
+            for (int i = 0; i < n; i++) {
+                hash = RandomUtils.mix64(hash + sorted[i]);
+                if (numOfDistinct == 0 || sorted[i] != sorted[numOfDistinct - 1])
+                    sorted[numOfDistinct++] = sorted[i];
+            }
+            for (int v = 0; v < n; v++)
+                colors[v] = Arrays.binarySearch(sorted, 0, numOfDistinct, signatures[v]);
+
+            if (numOfDistinct == numOfColors)
+                break;
+            numOfColors = numOfDistinct;
+        }
+        return hash;
+    }
+}
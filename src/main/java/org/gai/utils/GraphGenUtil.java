@@ -1,8 +1,7 @@
 package org.gai.utils;
 
 
-import org.gai.generate.MyPathGraphGenerator;
-import org.gai.generate.MyStarGraphGenerator;
+import org.gai.generate.*;
 import org.jgrapht.Graph;
 import org.jgrapht.generate.*;
 import org.jgrapht.graph.DefaultEdge;
@@ -10,14 +9,20 @@ import org.jgrapht.graph.SimpleGraph;
 import org.jgrapht.graph.builder.GraphTypeBuilder;
 import org.jgrapht.util.SupplierUtil;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.Closeable;
 import java.io.IOException;
-import java.util.Random;
-import java.util.function.Supplier;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.gai.utils.FileUtils.*;
-import static org.gai.utils.GraphUtils.getEdgeList;
 
 
 public class GraphGenUtil {
@@ -32,123 +37,338 @@ public class GraphGenUtil {
     public static final int NUM_BP_ERP_GRAPHS = 50_000;
 
 
-    public static void generate(){
+    // in the shard format, a task writes exactly one shard
+    public static final int GRAPHS_PER_TASK = ShardedGraphWriter.GRAPHS_PER_SHARD;
+
+    // with deduplication, the number of recent draws the duplicate rate is measured on
+    public static final int SATURATION_WINDOW = 1_000;
+
+    public static final int MAX_LABELED_EXHAUSTIVE_NODES = 6;
+    public static final int MAX_NON_ISOMORPHIC_EXHAUSTIVE_NODES = 10;
+
+
+    public static void main(String[] args) {
+        GenerationOptions options = GenerationOptions.parse(args);
+        if (options.getLargeNodes().isEmpty())
+            generate(options);
+        else
+            generateLargeGraphs(options);
+    }
+
+    public static void generate() {
+        generate(1);
+    }
+
+    public static void generate(int numOfThreads) {
+        generate(new GenerationOptions().setNumOfThreads(numOfThreads));
+    }
+
+    /**
+     * Generates the whole dataset, or the slice of it selected by the shard option.
+     * The work is split into tasks of at most GRAPHS_PER_TASK graphs per (n, generator) pair,
+     * and every task writes the graph ids of its own range, so the graph_%06d numbering is the same as the sequential path.
+     * Task k belongs to shard k % N, and every graph draws from its own random stream derived from the master seed,
+     * so merging the outputs of all N shards gives the same files as a single run with the same seed.
+     * With deduplication, the draws of a (n, generator) pair depend on each other and form a single task.
+     * Every completed task is recorded in the manifest, and skipped when resuming, see GenerationManifest.
+     */
+    public static void generate(GenerationOptions options) {
+        if (options.isResume() && !options.isMasterSeedSet()) {
+            Long manifestSeed = GenerationManifest.readMasterSeed(options);
+            if (manifestSeed != null)
+                options.setMasterSeed(manifestSeed);
+        }
+        long masterSeed = options.getMasterSeed();
+        startMetrics(options);
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "master seed: " + masterSeed);
+        CompressionUtils.setCompressOutput(options.isCompressed());
+
         createFolders();
-        for (int i = 1; i <= 6; i++)
-            generateAllGraphsFromOneToSix(i);
+        GenerationManifest manifest = GenerationManifest.open(options);
+        List<Runnable> tasks = new ArrayList<>();
+
+        int maxExhaustiveNodes = options.getMaxExhaustiveNodes();
+        if (options.getExhaustiveMode() == GenerationOptions.ExhaustiveMode.LABELED) {
+            if (maxExhaustiveNodes > MAX_LABELED_EXHAUSTIVE_NODES)
+                throw new IllegalArgumentException("Labeled enumeration is limited to " + MAX_LABELED_EXHAUSTIVE_NODES + " vertices");
+            for (int n = 1; n <= maxExhaustiveNodes; n++) {
+                int finalN = n;
+                int totalGraphs = (int) Math.pow(2, (double) (n * (n - 1)) / 2);
+                for (int from = 0; from < totalGraphs; from += GRAPHS_PER_TASK) {
+                    int finalFrom = from, finalTo = Math.min(from + GRAPHS_PER_TASK, totalGraphs);
+                    String unitName = String.format("n%02d/labeled/%d-%d", n, from, finalTo);
+                    tasks.add(getUnitTask(manifest, unitName, n, null, unit -> generateAllGraphsFromOneToSix(finalN, options, finalFrom, finalTo, unit)));
+                }
+            }
+        } else {
+            if (maxExhaustiveNodes > MAX_NON_ISOMORPHIC_EXHAUSTIVE_NODES)
+                throw new IllegalArgumentException("Non-isomorphic enumeration is limited to " + MAX_NON_ISOMORPHIC_EXHAUSTIVE_NODES + " vertices");
+            for (int n = 1; n <= maxExhaustiveNodes; n++) {
+                int finalN = n;
+                String unitName = String.format("n%02d/non-isomorphic", n);
+                tasks.add(getUnitTask(manifest, unitName, n, null, unit -> generateNonIsomorphicGraphs(finalN, options, unit)));
+            }
+        }
+
         for (int n = 7; n <= 20; n++) {
             int finalN = n;
+            String numNodes = String.format("n%02d", n);
+            for (Map.Entry<String, Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>>> entry : getGraphGenerators(n).entrySet()) {
+                String generatorName = entry.getKey();
+                Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> graphGeneratorFactory = entry.getValue();
+
+                Metrics.println(Metrics.VERBOSITY_VERBOSE, "number of vertices: " + n);
+                Metrics.println(Metrics.VERBOSITY_VERBOSE, "generation methods: " + generatorName);
+
+                createFolder("./dataset/" + numNodes, generatorName);
+                int numOfGraphs = getNumOfGraphs(generatorName, n);
+                int graphsPerTask = options.getDedupMode() == GraphDeduplicator.Mode.NONE ? GRAPHS_PER_TASK : Math.max(numOfGraphs, 1);
+                for (int from = 0; from < numOfGraphs; from += graphsPerTask) {
+                    int finalFrom = from, finalTo = Math.min(from + graphsPerTask, numOfGraphs);
+                    String unitName = String.format("%s/%s/%d-%d", numNodes, generatorName, from, finalTo);
+                    tasks.add(getUnitTask(manifest, unitName, n, generatorName,
+                            unit -> generateGraphsFromSevenToTwenty(finalN, graphGeneratorFactory, generatorName, options, finalFrom, finalTo, unit)));
+                }
+            }
+        }
+
+        List<Runnable> shardTasks = new ArrayList<>();
+        for (int k = options.getShardIndex(); k < tasks.size(); k += options.getNumOfShards())
+            shardTasks.add(tasks.get(k));
+
+        try (manifest) {
+            runTasks(shardTasks, options);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streams getNumOfLargeGraphs() graphs per generator for each number of vertices of getLargeNodes()
+     * to ./dataset/large/n[n]/GEN/graph_xxxxxx/graph_xxxxxx.csv[.gz], without building them, see LargeGraphWriter.
+     * Every graph draws from the random stream of (n, generator, index) as in generate(), one graph per task.
+     */
+    public static void generateLargeGraphs(GenerationOptions options) {
+        long masterSeed = options.getMasterSeed();
+        startMetrics(options);
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "master seed: " + masterSeed);
+        CompressionUtils.setCompressOutput(options.isCompressed());
+
+        List<Runnable> tasks = new ArrayList<>();
+        for (int n : options.getLargeNodes()) {
+            for (Map.Entry<String, Function<SplittableRandom, StreamingGraphGenerator>> entry : getStreamingGraphGenerators(n, options.getAverageDegree()).entrySet()) {
+                String generatorName = entry.getKey();
+                // generation and writing are a single stage for the large graphs
+                Metrics.Stage stage = Metrics.getStage(Metrics.GENERATE, n, generatorName);
+                for (int i = 0; i < options.getNumOfLargeGraphs(); i++) {
+                    int graphId = i + 1, index = i;
+                    String graphName = String.format("graph_%06d", graphId);
+                    Path file = Path.of("./dataset/large", "n" + n, generatorName, graphName, CompressionUtils.getOutputName(graphName + ".csv"));
+                    tasks.add(() -> {
+                        try {
+                            long start = Metrics.start();
+                            long numOfEdges = LargeGraphWriter.write(file, generatorName, () -> entry.getValue().apply(RandomUtils.getRandom(masterSeed, n, generatorName, index)));
+                            stage.record(start, Files.size(file));
+                            Metrics.println(Metrics.VERBOSITY_VERBOSE, "n = " + n + ", " + generatorName + ": " + file + ", " + numOfEdges + " edges");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            }
+        }
+
+        List<Runnable> shardTasks = new ArrayList<>();
+        for (int k = options.getShardIndex(); k < tasks.size(); k += options.getNumOfShards())
+            shardTasks.add(tasks.get(k));
+
+        runTasks(shardTasks, options);
+    }
+
+    /**
+     * The streaming counterparts of getGraphGenerators, with parameters chosen for the given average degree,
+     * as the random densities of the small graphs would give up to n^2 / 2 edges
+     */
+    private static Map<String, Function<SplittableRandom, StreamingGraphGenerator>> getStreamingGraphGenerators(int n, double averageDegree) {
+        Map<String, Function<SplittableRandom, StreamingGraphGenerator>> generators = new LinkedHashMap<>();
+        long maxEdges = (long) n * (n - 1) / 2;
+
+        generators.put("ERM", random -> new StreamingGnmGenerator(n, Math.min(Math.round(n * averageDegree / 2), maxEdges), random));
+
+        generators.put("ERP", random -> new StreamingGnpGenerator(n, Math.min(averageDegree / (n - 1), 1.0), random));
+
+        generators.put("BAG", random -> {
+            int m = (int) Math.max(1, Math.min(Math.round(averageDegree / 2), n - 1));
+            return new StreamingBarabasiAlbertGenerator(m + 1, m, n, random);
+        });
+
+        generators.put("SF", random -> new StreamingScaleFreeGenerator(n, random));
+
+        generators.put("Star", random -> new StreamingStarGenerator(n, random.nextInt(n)));
+
+        generators.put("Path", random -> new StreamingPathGenerator(n, random));
+
+        return generators;
+    }
+
+    // skips the unit if it is already completed, otherwise runs it and records it as completed
+    private static Runnable getUnitTask(GenerationManifest manifest, String unitName, int n, String generatorName, Consumer<GenerationManifest.Unit> task) {
+        return () -> {
+            if (manifest.isCompleted(unitName, n, generatorName)) {
+                Metrics.println(Metrics.VERBOSITY_VERBOSE, "skipping completed unit " + unitName);
+                return;
+            }
+            GenerationManifest.Unit unit = manifest.newUnit(unitName);
+            task.accept(unit);
+            manifest.complete(unit);
+        };
+    }
+
+    private static void startMetrics(GenerationOptions options) {
+        Metrics.setVerbosity(options.getVerbosity());
+        Metrics.reset();
+    }
+
+    // run the tasks with the progress line, then write the metrics summary next to the manifest
+    private static void runTasks(List<Runnable> tasks, GenerationOptions options) {
+        Closeable progress = Metrics.startProgress(options.getProgressInterval());
+        try {
+            runTasks(tasks, options.getNumOfThreads());
+        } finally {
+            try {
+                progress.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> new EmptyGraphGenerator<>(finalN),
-                    "EG"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        int m = random.nextInt(finalN % 2 == 0 ? Math.multiplyExact(finalN / 2, finalN - 1) : Math.multiplyExact((finalN - 1) / 2, finalN)) + 1;
-                        return new GnmRandomGraphGenerator<>(finalN, m, System.nanoTime());
-                    },
-                    "ERM"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        double p = random.nextDouble();
-                        while (p == 0.0)
-                            p = random.nextDouble();
-                        return new GnpRandomGraphGenerator<>(finalN, p, System.nanoTime());
-                    },
-                    "ERP"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        int m0 = random.nextInt(finalN / 3) + 1;
-                        while (m0 == 1)
-                            m0 = random.nextInt(finalN / 3) + 1;
-                        int m = random.nextInt(m0) + 1;
-                        return new BarabasiAlbertGraphGenerator<>(m0, m, finalN, System.nanoTime());
-                    },
-                    "BAG"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        int t = random.nextInt(finalN / 2) + 1;
-                        return new BarabasiAlbertForestGenerator<>(t, finalN, System.nanoTime());
-                    },
-                    "BAF"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> new ScaleFreeGraphGenerator<>(finalN, System.nanoTime()),
-                    "SF"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Graph<Integer, DefaultEdge> g = new SimpleGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), false);
-                        for (int i = 0; i < finalN; i++)
-                            g.addVertex(i);
-                        return new ComplementGraphGenerator<>(g);
-                    },
-                    "Complete"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        int n1 = random.nextInt(finalN) + 1;
-                        while (n1 == finalN)
-                            n1 = random.nextInt(finalN) + 1;
-                        int n2 = finalN - n1;
-                        int m = random.nextInt(n1 * n2) + 1;
-                        return new GnmRandomBipartiteGraphGenerator<>(n1, n2, m, System.nanoTime());
-                    },
-                    "Bipartite-ERM"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> {
-                        Random random = new Random(System.nanoTime());
-                        int n1 = random.nextInt(finalN) + 1;
-                        while (n1 == finalN)
-                            n1 = random.nextInt(finalN) + 1;
-                        int n2 = finalN - n1;
-                        double p = random.nextDouble();
-                        while (p == 0.0)
-                            p = random.nextDouble();
-                        return new GnpRandomBipartiteGraphGenerator<>(n1, n2, p, System.nanoTime());
-                    },
-                    "Bipartite-ERP"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> new MyStarGraphGenerator(finalN, new Random(System.nanoTime()).nextInt(finalN)),
-                    "Star"
-            );
-
-            generateGraphsFromSevenToTwenty(
-                    n,
-                    () -> new MyPathGraphGenerator(finalN, new Random(System.nanoTime())),
-                    "Path"
-            );
+        Path summary = options.getNumOfShards() == 1
+                ? Path.of("./dataset", "metrics.json")
+                : Path.of("./dataset", String.format("metrics_shard_%d_of_%d.json", options.getShardIndex(), options.getNumOfShards()));
+        try {
+            Metrics.writeSummary(summary);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "metrics summary: " + summary);
+    }
+
+    // run the tasks on a fixed thread pool and rethrow the first failure
+    private static void runTasks(List<Runnable> tasks, int numOfThreads) {
+        if (numOfThreads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive");
+        if (numOfThreads == 1) {
+            for (Runnable task : tasks)
+                task.run();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks)
+                futures.add(executor.submit(task));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Each generator is built from the random stream of the graph it generates,
+     * all randomness of the generator (its parameters and its seed) must be drawn from that stream.
+     * Public for the benchmarks
+     */
+    public static Map<String, Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>>> getGraphGenerators(int n) {
+        int finalN = n;
+        Map<String, Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>>> generators = new LinkedHashMap<>();
+
+        generators.put("EG", random -> new EmptyGraphGenerator<>(finalN));
+
+        generators.put("ERM", random -> {
+            int m = random.nextInt(finalN % 2 == 0 ? Math.multiplyExact(finalN / 2, finalN - 1) : Math.multiplyExact((finalN - 1) / 2, finalN)) + 1;
+            return new GnmRandomGraphGenerator<>(finalN, m, random.nextLong());
+        });
+
+        generators.put("ERP", random -> {
+            double p = random.nextDouble();
+            while (p == 0.0)
+                p = random.nextDouble();
+            return new GnpRandomGraphGenerator<>(finalN, p, random.nextLong());
+        });
+
+        generators.put("BAG", random -> {
+            int m0 = random.nextInt(finalN / 3) + 1;
+            while (m0 == 1)
+                m0 = random.nextInt(finalN / 3) + 1;
+            int m = random.nextInt(m0) + 1;
+            return new BarabasiAlbertGraphGenerator<>(m0, m, finalN, random.nextLong());
+        });
+
+        generators.put("BAF", random -> {
+            int t = random.nextInt(finalN / 2) + 1;
+            return new BarabasiAlbertForestGenerator<>(t, finalN, random.nextLong());
+        });
+
+        generators.put("SF", random -> new ScaleFreeGraphGenerator<>(finalN, random.nextLong()));
+
+        generators.put("Complete", random -> {
+            Graph<Integer, DefaultEdge> g = new SimpleGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), false);
+            for (int i = 0; i < finalN; i++)
+                g.addVertex(i);
+            return new ComplementGraphGenerator<>(g);
+        });
+
+        generators.put("Bipartite-ERM", random -> {
+            int n1 = random.nextInt(finalN) + 1;
+            while (n1 == finalN)
+                n1 = random.nextInt(finalN) + 1;
+            int n2 = finalN - n1;
+            int m = random.nextInt(n1 * n2) + 1;
+            return new GnmRandomBipartiteGraphGenerator<>(n1, n2, m, random.nextLong());
+        });
+
+        generators.put("Bipartite-ERP", random -> {
+            int n1 = random.nextInt(finalN) + 1;
+            while (n1 == finalN)
+                n1 = random.nextInt(finalN) + 1;
+            int n2 = finalN - n1;
+            double p = random.nextDouble();
+            while (p == 0.0)
+                p = random.nextDouble();
+            return new GnpRandomBipartiteGraphGenerator<>(n1, n2, p, random.nextLong());
+        });
+
+        generators.put("Star", random -> new MyStarGraphGenerator(finalN, random.nextInt(finalN)));
+
+        generators.put("Path", random -> new MyPathGraphGenerator(finalN, random.nextLong()));
+
+        generators.put("SBM", random -> {
+            // 2 to n / 3 blocks of random sizes, denser inside the blocks than between them
+            int k = random.nextInt(Math.max(finalN / 3 - 1, 1)) + 2;
+            int[] blockSizes = new int[k];
+            Arrays.fill(blockSizes, 1);
+            for (int v = k; v < finalN; v++)
+                blockSizes[random.nextInt(k)]++;
+            double pIn = random.nextDouble();
+            while (pIn == 0.0)
+                pIn = random.nextDouble();
+            double pOut = random.nextDouble() * pIn;
+            double[][] probabilities = new double[k][k];
+            for (int i = 0; i < k; i++) {
+                Arrays.fill(probabilities[i], pOut);
+                probabilities[i][i] = pIn;
+            }
+            return new MySbmGraphGenerator(blockSizes, probabilities, random.nextLong());
+        });
+
+        return generators;
     }
 
     private static int getNumOfGraphs(String graphGenName, Integer numOfNodes) {
@@ -196,34 +416,120 @@ public class GraphGenUtil {
 
     public static void generateAllGraphsFromOneToSix(int n) {
         int totalGraphs = (int) Math.pow(2, (double) (n * (n - 1)) / 2);
+        generateAllGraphsFromOneToSix(n, new GenerationOptions(), 0, totalGraphs);
+    }
 
-        int[][] combinations = generateCombinations(n);
-
-        for (int i = 0; i < totalGraphs; i++) {
-            String numNodes = String.format("n%02d", n);
-            String graphId = String.format("graph_%06d", i + 1);
-
-            String fileName = graphId + ".csv";
-
-            // create folder ./dataset/nxx/graphxxxxxx/
-            createFolder("./dataset/" + numNodes + "/", graphId);
+    /**
+     * Writes the graphs with index in [from, to), where the bits of index i select the edges of graph_(i+1)
+     */
+    public static void generateAllGraphsFromOneToSix(int n, GenerationOptions options, int from, int to) {
+        generateAllGraphsFromOneToSix(n, options, from, to, null);
+    }
 
-            File file = new File("./dataset/" + numNodes + "/" + graphId, fileName);
+    /**
+     * Same as above, the written graphs are added to the checksum of the unit of the manifest, if not null
+     */
+    public static void generateAllGraphsFromOneToSix(int n, GenerationOptions options, int from, int to, GenerationManifest.Unit unit) {
+        int[][] combinations = generateCombinations(n);
+        Metrics.Stage stage = Metrics.getStage(Metrics.GENERATE, n, null);
+
+        try (GraphSink sink = openGraphSink(options, n, null, unit);
+             GraphPipeline pipeline = openPipeline(options, n, null)) {
+            for (int i = from; i < to; i++) {
+                if (pipeline != null) {
+                    long start = Metrics.start();
+                    CsrGraph g = getLabeledGraph(n, combinations, i);
+                    stage.record(start, 0);
+                    pipeline.accept(i + 1, g);
+                }
+                if (sink == null)
+                    continue;
 
-            try (FileWriter writer = new FileWriter(file)) {
-                writer.write("# number of vertices: " + n + "\n");
-                writer.write("# number of edges: " + Integer.bitCount(i) + "\n");
+                long start = Metrics.start();
+                StringBuilder content = new StringBuilder();
+                content.append("# number of vertices: ").append(n).append("\n");
+                content.append("# number of edges: ").append(Integer.bitCount(i)).append("\n");
                 for (int k = 0; k < n; k++)
-                    writer.write(k + "\n");
+                    content.append(k).append("\n");
                 for (int j = 0; j < combinations.length; j++) {
                     if ((i & (1 << j)) != 0) {
-                        writer.write(combinations[j][0] + " " + combinations[j][1] + "\n");
+                        content.append(combinations[j][0]).append(" ").append(combinations[j][1]).append("\n");
                     }
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
+                if (pipeline == null)
+                    stage.record(start, 0);
+                sink.write(i + 1, content.toString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void generateNonIsomorphicGraphs(int n) {
+        generateNonIsomorphicGraphs(n, new GenerationOptions());
+    }
+
+    /**
+     * Writes one graph per isomorphism class of the graphs on n vertices, numbered in the order of the orderly generation,
+     * e.g., 12,005,168 graphs for n = 10 instead of the 2^45 labeled ones
+     */
+    public static void generateNonIsomorphicGraphs(int n, GenerationOptions options) {
+        generateNonIsomorphicGraphs(n, options, null);
+    }
+
+    public static void generateNonIsomorphicGraphs(int n, GenerationOptions options, GenerationManifest.Unit unit) {
+        int[] numOfGraphs = {0};
+        Metrics.Stage stage = Metrics.getStage(Metrics.GENERATE, n, null);
+        // the generation time of a graph is the time since the previous graph was processed
+        long[] start = {Metrics.start()};
+
+        try (GraphSink sink = openGraphSink(options, n, null, unit);
+             GraphPipeline pipeline = openPipeline(options, n, null)) {
+            new OrderlyGraphEnumerator(n).enumerate(adjacency -> {
+                try {
+                    CsrGraph g = CsrGraph.fromAdjacency(adjacency);
+                    stage.record(start[0], 0);
+                    ++numOfGraphs[0];
+                    if (sink != null)
+                        sink.write(numOfGraphs[0], serializeGraph(null, g, null, null));
+                    if (pipeline != null)
+                        pipeline.accept(numOfGraphs[0], g);
+                    start[0] = Metrics.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the graph of index i, whose bits select the edges among the combinations
+    private static CsrGraph getLabeledGraph(int n, int[][] combinations, int i) {
+        int m = Integer.bitCount(i);
+        int[] sources = new int[m], targets = new int[m];
+        int e = 0;
+        for (int j = 0; j < combinations.length; j++) {
+            if ((i & (1 << j)) != 0) {
+                sources[e] = combinations[j][0];
+                targets[e++] = combinations[j][1];
             }
         }
+        return new CsrGraph(n, sources, targets);
+    }
+
+    // the sink of the generated graphs, null if they are not persisted (pipeline mode)
+    private static GraphSink openGraphSink(GenerationOptions options, int n, String generatorName, GenerationManifest.Unit unit) {
+        if (!options.isPersisted(GenerationOptions.PERSIST_GRAPHS))
+            return null;
+        GraphSink sink = Metrics.getStage(Metrics.WRITE, n, generatorName).wrap(FileUtils.openGraphSink(options.getOutputFormat(), getGraphFolder(n, generatorName)));
+        if (options.isAsyncWrites())
+            sink = AsyncWriter.wrap(sink, AsyncWriter.DEFAULT_CAPACITY);
+        return unit == null ? sink : unit.wrap(sink);
+    }
+
+    private static GraphPipeline openPipeline(GenerationOptions options, int n, String generatorName) {
+        return options.isPipeline() ? new GraphPipeline(options, n, generatorName) : null;
     }
 
     private static int[][] generateCombinations(int nodes) {
@@ -242,62 +548,103 @@ public class GraphGenUtil {
 
     public static void generateGraphsFromSevenToTwenty(
             int nodes,
-            Supplier<GraphGenerator<Integer, DefaultEdge, Integer>> graphGeneratorSupplier,
-            String generatorName) {
+            Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> graphGeneratorFactory,
+            String generatorName,
+            GenerationOptions options) {
 
-        System.out.println("number of vertices: " + nodes);
-        System.out.println("generation methods: " + generatorName);
+        Metrics.println(Metrics.VERBOSITY_VERBOSE, "number of vertices: " + nodes);
+        Metrics.println(Metrics.VERBOSITY_VERBOSE, "generation methods: " + generatorName);
 
         String numNodes = String.format("n%02d", nodes);
         createFolder("./dataset/" + numNodes, generatorName);
 
-        int numOfGraphs = getNumOfGraphs(generatorName, nodes);
-
-        for (int i = 0; i < numOfGraphs; i++) {
-            String graphId = String.format("graph_%06d", i + 1);
-            String fileName = graphId + ".csv";
-            // create folder ./dataset/nxx/graphxxxxxx/
-            createFolder("./dataset/" + numNodes + "/" + generatorName, graphId);
-            File file = new File("./dataset/" + numNodes + "/" + generatorName + "/" + graphId, fileName);
-
-            Graph<Integer, DefaultEdge> g = GraphTypeBuilder
-                    .<Integer, DefaultEdge>undirected()
-                    .allowingMultipleEdges(false)
-                    .allowingSelfLoops(false)
-                    .edgeClass(DefaultEdge.class)
-                    .weighted(false)
-                    .vertexSupplier(SupplierUtil.createIntegerSupplier())
-                    .edgeSupplier(SupplierUtil.createDefaultEdgeSupplier())
-                    .buildGraph();
-
-            GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator = graphGeneratorSupplier.get();
-
-            graphGenerator.generateGraph(g);
-
-            writeGraph(file, generatorName, g.vertexSet(), getEdgeList(g), graphGenerator);
-//            try (FileWriter writer = new FileWriter(file)) {
-//                writer.write("# " + generatorName + " graphs\n");
-//                writer.write("# number of vertices: " + g.vertexSet().size() + "\n");
-//                writer.write("# number of edges: " + g.edgeSet().size() + "\n");
-//
-//                // Specifically for the case of bipartite graphs
-//                // The two partitions are written at the beginning of the CSV files
-//                if (generatorName.equals("Bipartite-ERP")) {
-//                    GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnpRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
-//                    writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
-//                }
-//                if (generatorName.equals("Bipartite-ERM")) {
-//                    GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge> bg = (GnmRandomBipartiteGraphGenerator<Integer, DefaultEdge>) graphGenerator;
-//                    writeBipartiteVertices(bg.getFirstPartition(), bg.getSecondPartition(), writer);
-//                }
-//
-//                for (Integer v : g.vertexSet())
-//                    writer.write(v + "\n");
-//                for (DefaultEdge e : g.edgeSet())
-//                    writer.write(g.getEdgeSource(e) + " " + g.getEdgeTarget(e) + "\n");
-//            } catch (IOException e) {
-//                e.printStackTrace();
-//            }
+        generateGraphsFromSevenToTwenty(nodes, graphGeneratorFactory, generatorName, options, 0, getNumOfGraphs(generatorName, nodes));
+    }
+
+    /**
+     * Writes graph_(from+1) to graph_(to) of the given generator, the folder ./dataset/nxx/generatorName/ must already exist.
+     * With deduplication, [from, to) must be the whole range: repeated draws are skipped, the unique graphs are numbered
+     * consecutively, and the generator stops early once it is saturated.
+     */
+    public static void generateGraphsFromSevenToTwenty(
+            int nodes,
+            Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> graphGeneratorFactory,
+            String generatorName,
+            GenerationOptions options,
+            int from,
+            int to) {
+        generateGraphsFromSevenToTwenty(nodes, graphGeneratorFactory, generatorName, options, from, to, null);
+    }
+
+    public static void generateGraphsFromSevenToTwenty(
+            int nodes,
+            Function<SplittableRandom, GraphGenerator<Integer, DefaultEdge, Integer>> graphGeneratorFactory,
+            String generatorName,
+            GenerationOptions options,
+            int from,
+            int to,
+            GenerationManifest.Unit unit) {
+
+        long masterSeed = options.getMasterSeed();
+
+        GraphDeduplicator deduplicator = null;
+        if (options.getDedupMode() != GraphDeduplicator.Mode.NONE) {
+            if (from != 0)
+                throw new IllegalArgumentException("Deduplication needs the whole range of graph ids");
+            deduplicator = new GraphDeduplicator(options.getDedupMode(), nodes, Math.min(SATURATION_WINDOW, to));
+        }
+        Metrics.Stage stage = Metrics.getStage(Metrics.GENERATE, nodes, generatorName);
+
+        try (GraphSink sink = openGraphSink(options, nodes, generatorName, unit);
+             GraphPipeline pipeline = openPipeline(options, nodes, generatorName)) {
+            for (int i = from; i < to; i++) {
+                long start = Metrics.start();
+                Graph<Integer, DefaultEdge> g = GraphTypeBuilder
+                        .<Integer, DefaultEdge>undirected()
+                        .allowingMultipleEdges(false)
+                        .allowingSelfLoops(false)
+                        .edgeClass(DefaultEdge.class)
+                        .weighted(false)
+                        .vertexSupplier(SupplierUtil.createIntegerSupplier())
+                        .edgeSupplier(SupplierUtil.createDefaultEdgeSupplier())
+                        .buildGraph();
+
+                GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator = graphGeneratorFactory.apply(RandomUtils.getRandom(masterSeed, nodes, generatorName, i));
+
+                graphGenerator.generateGraph(g);
+
+                CsrGraph csr = CsrGraph.fromGraph(g);
+                stage.record(start, 0);
+                if (deduplicator == null) {
+                    write(sink, pipeline, i + 1, generatorName, csr, graphGenerator);
+                    continue;
+                }
+
+                if (deduplicator.add(csr))
+                    write(sink, pipeline, deduplicator.getNumOfUnique(), generatorName, csr, graphGenerator);
+                if (deduplicator.isSaturated(options.getSaturationThreshold()))
+                    break;
+            }
+
+            if (deduplicator != null)
+                Metrics.println(Metrics.VERBOSITY_NORMAL, "n = " + nodes + ", " + generatorName + ": " + deduplicator.getNumOfUnique() + " unique graphs out of "
+                        + deduplicator.getNumOfDraws() + " draws, " + (to - from) + " requested"
+                        + (deduplicator.getNumOfDraws() < to - from ? " (saturated)" : ""));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
-}
\ No newline at end of file
+
+    private static void write(
+            GraphSink sink,
+            GraphPipeline pipeline,
+            int graphId,
+            String generatorName,
+            CsrGraph g,
+            GraphGenerator<Integer, DefaultEdge, Integer> graphGenerator) throws IOException {
+        if (sink != null)
+            sink.write(graphId, serializeGraph(generatorName, g, graphGenerator, null));
+        if (pipeline != null)
+            pipeline.accept(graphId, g);
+    }
+}
@@ -0,0 +1,175 @@
+package org.gai.utils;
+
+import org.jgrapht.alg.util.Pair;
+
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Passes every generated graph of a (n, generator) task through augmentation, properties and prompt rendering in memory,
+ * instead of writing it to ./dataset and reading it back in DataAugUtils.augment() and GraphPrompt.generate().
+ * <p>
+ * For the original graph and each of its five augmented variants, named nXX-GEN-graph_xxxxxx[suffix]:
+ * - the properties of the options, selected as in PropertyDriver, are streamed as one JSON line in the encoding of the options
+ * to ./properties/nXX[/GEN]/properties_xxxxxx.jsonl[.gz],
+ * one file per block of ShardedGraphWriter.GRAPHS_PER_SHARD graph ids, so that concurrent tasks never share a file
+ * - the prompts are written to GraphPrompt.SERI_PATH, as GraphPrompt.writePrompts() does
+ * The augmented graphs are written to the dataset only when requested by the persist option, in the same layout as DataAugUtils.augment().
+ * With asynchronous writes, all files of the pipeline are written in order by the I/O thread of one AsyncWriter.
+ * The augmentation, properties and prompts of every graph, and the files written, are recorded in Metrics.
+ * Not thread-safe, each task opens its own pipeline.
+ */
+public class GraphPipeline implements Closeable {
+    public static final String PROPERTIES_PATH = "./properties/";
+
+    private final GenerationOptions options;
+    private final int n;
+    private final String generatorName;
+    private final String namePrefix;
+    private final Path propertiesFolder;
+    private final List<String> prompts;
+    private final Map<String, GraphSink> augmentedSinks = new HashMap<>();
+    private final AsyncWriter asyncWriter; // null for inline writes
+    private final Metrics.Stage augmentStage, propertiesStage, promptsStage, writeStage;
+
+    private final CharArrayWriter propertiesBuffer = new CharArrayWriter(); // the properties line of the current graph
+
+    private Writer propertiesWriter;
+    private int propertiesShard = -1;
+
+    public GraphPipeline(GenerationOptions options, int n, String generatorName) {
+        this.options = options;
+        this.n = n;
+        this.generatorName = generatorName;
+        this.namePrefix = String.format("n%02d", n) + (generatorName == null ? "" : "-" + generatorName);
+        this.propertiesFolder = generatorName == null
+                ? Path.of(PROPERTIES_PATH, String.format("n%02d", n))
+                : Path.of(PROPERTIES_PATH, String.format("n%02d", n), generatorName);
+        this.prompts = GraphPrompt.getPrompts();
+        try {
+            Files.createDirectories(propertiesFolder);
+            Files.createDirectories(Path.of(GraphPrompt.SERI_PATH));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.asyncWriter = options.isAsyncWrites() ? new AsyncWriter(AsyncWriter.DEFAULT_CAPACITY) : null;
+        this.augmentStage = Metrics.getStage(Metrics.AUGMENT, n, generatorName);
+        this.propertiesStage = Metrics.getStage(Metrics.PROPERTIES, n, generatorName);
+        this.promptsStage = Metrics.getStage(Metrics.PROMPTS, n, generatorName);
+        this.writeStage = Metrics.getStage(Metrics.WRITE, n, generatorName);
+    }
+
+    /**
+     * Processes graph_xxxxxx and its augmented variants,
+     * the variants draw from the random stream of (graphId, generator name + "-aug") so they do not depend on the thread,
+     * and the random choices of the properties from the one of (graphId, generator name + "-prop")
+     */
+    public void accept(int graphId, CsrGraph g) throws IOException {
+        String name = namePrefix + String.format("-graph_%06d", graphId);
+        SplittableRandom propertiesRandom = RandomUtils.getRandom(options.getMasterSeed(), n, (generatorName == null ? "" : generatorName) + "-prop", graphId);
+        process(graphId, name, g, propertiesRandom);
+
+        String augmentationName = (generatorName == null ? "" : generatorName) + "-aug";
+        long start = Metrics.start();
+        Map<String, Pair<CsrGraph, String>> variants = DataAugUtils.augment(g, RandomUtils.getRandom(options.getMasterSeed(), n, augmentationName, graphId));
+        augmentStage.record(start, 0);
+        for (Map.Entry<String, Pair<CsrGraph, String>> variant : variants.entrySet()) {
+            String suffix = variant.getKey();
+            CsrGraph augmented = variant.getValue().getFirst();
+            if (options.isPersisted(GenerationOptions.PERSIST_AUGMENTED)) {
+                String content = FileUtils.serializeGraph(null, augmented, null, variant.getValue().getSecond());
+                write(content.length(), () -> getAugmentedSink(suffix).write(graphId, content));
+            }
+            process(graphId, name + suffix, augmented, propertiesRandom);
+        }
+    }
+
+    private void process(int graphId, String name, CsrGraph g, SplittableRandom propertiesRandom) throws IOException {
+        long start = Metrics.start();
+        propertiesBuffer.reset();
+        GraphProperties.writeJsonLine(propertiesBuffer, name, g, PropertyDriver.getProperties(options, g.getNumOfNodes()),
+                options.getPropertyEncoding(), propertiesRandom, options.getLargeGraphThreshold());
+        int length = propertiesBuffer.size();
+        propertiesStage.record(start, length);
+        if (asyncWriter == null) {
+            write(length, () -> propertiesBuffer.writeTo(getPropertiesWriter(graphId)));
+        } else {
+            String line = propertiesBuffer.toString();
+            write(length, () -> getPropertiesWriter(graphId).write(line));
+        }
+
+        start = Metrics.start();
+        Map<String, String> rendered = GraphPrompt.renderPrompts(name, g, prompts);
+        long numOfBytes = 0;
+        for (String content : rendered.values())
+            numOfBytes += content.length();
+        promptsStage.record(start, numOfBytes);
+        for (Map.Entry<String, String> prompt : rendered.entrySet())
+            write(prompt.getValue().length(), () -> GraphPrompt.writePrompt(prompt.getKey(), prompt.getValue()));
+    }
+
+    // runs the write inline or on the I/O thread, recording it in the write stage
+    private void write(long numOfBytes, AsyncWriter.Write write) throws IOException {
+        AsyncWriter.Write recorded = () -> {
+            long start = Metrics.start();
+            write.run();
+            writeStage.record(start, numOfBytes);
+        };
+        if (asyncWriter == null)
+            recorded.run();
+        else
+            asyncWriter.submit(recorded);
+    }
+
+    private Writer getPropertiesWriter(int graphId) throws IOException {
+        int shard = ShardedGraphWriter.getShard(graphId);
+        if (shard != propertiesShard) {
+            if (propertiesWriter != null)
+                propertiesWriter.close();
+            propertiesWriter = CompressionUtils.newWriter(propertiesFolder.resolve(CompressionUtils.getOutputName(String.format("properties_%06d.jsonl", shard))));
+            propertiesShard = shard;
+        }
+        return propertiesWriter;
+    }
+
+    private GraphSink getAugmentedSink(String suffix) throws IOException {
+        GraphSink sink = augmentedSinks.get(suffix);
+        if (sink == null) {
+            sink = FileUtils.openGraphSink(options.getOutputFormat(), FileUtils.getGraphFolder(n, generatorName), suffix);
+            augmentedSinks.put(suffix, sink);
+        }
+        return sink;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        if (asyncWriter != null) {
+            try {
+                asyncWriter.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        for (GraphSink sink : augmentedSinks.values()) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (propertiesWriter != null)
+            propertiesWriter.close();
+        if (failure != null)
+            throw failure;
+    }
+}
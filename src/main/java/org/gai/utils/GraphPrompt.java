@@ -3,11 +3,13 @@ package org.gai.utils;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultEdge;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.List;
 
 public class GraphPrompt {
@@ -21,56 +23,95 @@ public class GraphPrompt {
     public static final String GRAPHS_PATH = "./dataset/";
 
     public static void main(String[] args) {
+        CompressionUtils.setCompressOutput(Arrays.asList(args).contains("--compress"));
         generate();
     }
 
     public static void generate() {
-        List<String> prompts = FileUtils.readPrompts(PROMPTS_PATH);
+        List<String> prompts = getPrompts();
         int i = 0;
-        for (Graph<Integer, DefaultEdge> g : getGraphs("./dataset")) {
-            int j = 0;
-            for (String serialization : SERIALIZATIONS) {
-                int k = 0;
-                for (String p : prompts) {
-                    writePrompt(
-                            SERI_PATH + "g-" + i + "-s-" + j + "-p-" + k + ".txt",
-                            p.replace(
-                                    "<GDL>",
-                                    serializeGraph(g, serialization)
-                            )
-                    );
-                    ++k;
-                }
-                ++j;
-            }
+        for (CsrGraph g : getGraphs("./dataset")) {
+            long start = Metrics.start();
+            writePrompts("g-" + i, g, prompts);
+            Metrics.getStage(Metrics.PROMPTS, g.getNumOfNodes(), null).record(start, 0);
             ++i;
         }
+        Metrics.println(Metrics.VERBOSITY_NORMAL, Metrics.getProgress());
+
+    }
 
+    private static volatile List<String> prompts;
+
+    /**
+     * The prompts of PROMPTS_PATH, read once
+     */
+    public static List<String> getPrompts() {
+        if (prompts == null) {
+            synchronized (GraphPrompt.class) {
+                if (prompts == null)
+                    prompts = List.copyOf(FileUtils.readPrompts(PROMPTS_PATH));
+            }
+        }
+        return prompts;
     }
 
-    private static List<Graph<Integer, DefaultEdge>> getGraphs(String path) {
-        List<Path> pathList = null;
+    /**
+     * Writes SERI_PATH/name-s-j-p-k.txt : prompt k with the GDL replaced by serialization j of g
+     */
+    public static void writePrompts(String name, CsrGraph g, List<String> prompts) {
         try {
-            pathList = FileUtils.listFiles(Path.of(path));
+            for (Map.Entry<String, String> prompt : renderPrompts(name, g, prompts).entrySet())
+                writePrompt(prompt.getKey(), prompt.getValue());
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
-        List<Graph<Integer, DefaultEdge>> graphs = new ArrayList<>();
-        for (Path p : pathList)
-            graphs.add(FileUtils.getGraph(p.toString()));
-        return graphs;
     }
 
-    private static void writePrompt(String name, String content) {
-        File file = new File(name);
-        try (FileWriter fw = new FileWriter(file)) {
-            fw.write(content);
+    /**
+     * The contents of the files written by writePrompts, keyed by file name
+     */
+    public static Map<String, String> renderPrompts(String name, CsrGraph g, List<String> prompts) {
+        Map<String, String> rendered = new LinkedHashMap<>();
+        int j = 0;
+        for (String serialization : SERIALIZATIONS) {
+            int k = 0;
+            String gdl = serializeGraph(g, serialization);
+            for (String p : prompts) {
+                rendered.put(
+                        SERI_PATH + name + "-s-" + j + "-p-" + k + ".txt",
+                        p.replace(
+                                "<GDL>",
+                                gdl
+                        )
+                );
+                ++k;
+            }
+            ++j;
+        }
+        return rendered;
+    }
+
+    // the graphs of the dataset, original and derived, in the order of DatasetUnit; manifests, metrics and shard files are not graphs
+    private static List<CsrGraph> getGraphs(String path) {
+        List<CsrGraph> graphs = new ArrayList<>();
+        try {
+            for (DatasetUnit unit : DatasetUnit.list(Path.of(path)))
+                unit.forEachGraph(Path.of(path), (graphId, graphPath, content) -> graphs.add(FileUtils.parseCsrGraph(content)));
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
+        return graphs;
+    }
+
+    public static void writePrompt(String name, String content) throws IOException {
+        CompressionUtils.write(Path.of(CompressionUtils.getOutputName(name)), content);
+    }
+
+    public static String serializeGraph(Graph<Integer, DefaultEdge> graph, String serialization) {
+        return serializeGraph(CsrGraph.fromGraph(graph), serialization);
     }
 
-    private static String serializeGraph(Graph<Integer, DefaultEdge> graph, String serialization) {
+    public static String serializeGraph(CsrGraph graph, String serialization) {
         String ret = null;
         switch (serialization) {
             case "Adjacency":
@@ -88,91 +129,80 @@ public class GraphPrompt {
         return ret;
     }
 
-    private static String getAdjacencyGDL(Graph<Integer, DefaultEdge> g) {
+    private static String getAdjacencyGDL(CsrGraph g) {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("\nIn the undirected graph, (i,j) means that node i and node j are connected with an undirected edge.\n");
         stringBuilder.append("The graph has the following nodes: ");
 
-        List<Integer> vertexList = new ArrayList<>(g.vertexSet());
+        int n = g.getNumOfNodes();
         int i = 0;
-        for (; i < vertexList.size() - 1; i++)
-            stringBuilder.append(vertexList.get(i)).append(", ");
-        if (i < vertexList.size())
-            stringBuilder.append("and ").append(vertexList.get(i)).append(".\n");
+        for (; i < n - 1; i++)
+            stringBuilder.append(i).append(", ");
+        if (i < n)
+            stringBuilder.append("and ").append(i).append(".\n");
 
         stringBuilder.append("The edges in the graph are: \n");
-        for (DefaultEdge e : g.edgeSet()) {
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
             stringBuilder.append("\t");
             stringBuilder.append("(").append(g.getEdgeSource(e)).append(", ").append(g.getEdgeTarget(e)).append(")\n");
         }
         return stringBuilder.toString();
     }
 
-    private static String getFullAdjacencyGDL(Graph<Integer, DefaultEdge> g) {
+    private static String getFullAdjacencyGDL(CsrGraph g) {
         StringBuilder stringBuilder = new StringBuilder();
 
         stringBuilder.append("\nThe graph has the following nodes: ");
-        List<Integer> vertexList = new ArrayList<>(g.vertexSet());
+        int n = g.getNumOfNodes();
         int i = 0;
-        for (; i < vertexList.size() - 1; i++)
-            stringBuilder.append("Node ").append(vertexList.get(i)).append(", ");
-        if (i < vertexList.size())
-            stringBuilder.append("and Node ").append(vertexList.get(i)).append(".\n");
+        for (; i < n - 1; i++)
+            stringBuilder.append("Node ").append(i).append(", ");
+        if (i < n)
+            stringBuilder.append("and Node ").append(i).append(".\n");
 
         stringBuilder.append("The edges in the graph are: \n");
-        List<DefaultEdge> edgeList = new ArrayList<>(g.edgeSet());
+        int m = g.getNumOfEdges();
         i = 0;
-        for (; i < edgeList.size() - 1; i++)
+        for (; i < m - 1; i++)
             stringBuilder.append("\t")
-                    .append("Node ").append(g.getEdgeSource(edgeList.get(i))).append(" is connected to Node ")
-                    .append(g.getEdgeTarget(edgeList.get(i))).append(" with an edge;\n");
+                    .append("Node ").append(g.getEdgeSource(i)).append(" is connected to Node ")
+                    .append(g.getEdgeTarget(i)).append(" with an edge;\n");
 
-        if (i < edgeList.size())
+        if (i < m)
             stringBuilder
-                    .append("\t").append("Node ").append(g.getEdgeSource(edgeList.get(i))).append(" is connected to Node ")
-                    .append(g.getEdgeTarget(edgeList.get(i))).append(" with an edge.\n");
+                    .append("\t").append("Node ").append(g.getEdgeSource(i)).append(" is connected to Node ")
+                    .append(g.getEdgeTarget(i)).append(" with an edge.\n");
         return stringBuilder.toString();
     }
 
-    private static String getIncidentGDL(Graph<Integer, DefaultEdge> g) {
+    private static String getIncidentGDL(CsrGraph g) {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append("\nThe graph has the following nodes: ");
 
-        List<Integer> vertexList = new ArrayList<>(g.vertexSet());
+        int n = g.getNumOfNodes();
         int i = 0;
-        for (; i < vertexList.size() - 1; i++)
-            stringBuilder.append("Node ").append(vertexList.get(i)).append(", ");
-        if (i < vertexList.size())
-            stringBuilder.append("and Node ").append(vertexList.get(i)).append(".\n");
+        for (; i < n - 1; i++)
+            stringBuilder.append("Node ").append(i).append(", ");
+        if (i < n)
+            stringBuilder.append("and Node ").append(i).append(".\n");
 
         stringBuilder.append("In this graph, \n");
 
-        for (i = 0; i < vertexList.size() - 1; i++) {
-            int v = vertexList.get(i);
-            List<Integer> neiOfV = getNeighboursOf(g, v);
-            if (neiOfV.size() == 1) {
-                stringBuilder.append("\t").append("Node ").append(v).append(" has ").append(g.degreeOf(v)).append(" connection: Node ")
-                        .append(neiOfV.get(0)).append(".\n");
+        for (int v = 0; v < n - 1; v++) {
+            int degree = g.degreeOf(v);
+            if (degree == 1) {
+                stringBuilder.append("\t").append("Node ").append(v).append(" has ").append(degree).append(" connection: Node ")
+                        .append(g.getNeighbor(v, 0)).append(".\n");
             } else {
-                stringBuilder.append("\t").append("Node ").append(v).append(" has ").append(g.degreeOf(v)).append(" connections: ");
+                stringBuilder.append("\t").append("Node ").append(v).append(" has ").append(degree).append(" connections: ");
                 int j = 0;
-                for (; j < neiOfV.size() - 1; j++)
-                    stringBuilder.append("Node ").append(neiOfV.get(j)).append(", ");
-                if (j < neiOfV.size())
-                    stringBuilder.append("and Node ").append(neiOfV.get(j));
+                for (; j < degree - 1; j++)
+                    stringBuilder.append("Node ").append(g.getNeighbor(v, j)).append(", ");
+                if (j < degree)
+                    stringBuilder.append("and Node ").append(g.getNeighbor(v, j));
                 stringBuilder.append(".\n");
             }
         }
         return stringBuilder.toString();
     }
-
-    private static List<Integer> getNeighboursOf(Graph<Integer, DefaultEdge> g, Integer v) {
-        List<DefaultEdge> adjOfV = new ArrayList<>(g.edgesOf(v));
-        List<Integer> ret = new ArrayList<>();
-        for (DefaultEdge e : adjOfV) {
-            int source = g.getEdgeSource(e), target = g.getEdgeTarget(e);
-            ret.add(v == source ? target : source);
-        }
-        return ret;
-    }
 }
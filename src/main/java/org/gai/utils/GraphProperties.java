@@ -1,23 +1,16 @@
 package org.gai.utils;
 
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import org.jgrapht.GraphMetrics;
-import org.jgrapht.alg.connectivity.ConnectivityInspector;
-import org.jgrapht.alg.cycle.CycleDetector;
-import org.jgrapht.alg.interfaces.SpanningTreeAlgorithm;
-import org.jgrapht.alg.spanning.KruskalMinimumSpanningTree;
-import org.jgrapht.alg.util.Pair;
+import com.google.gson.stream.JsonWriter;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleDirectedGraph;
 import org.jgrapht.graph.SimpleGraph;
-import org.jgrapht.traverse.BreadthFirstIterator;
-import org.jgrapht.traverse.DepthFirstIterator;
-import org.jgrapht.traverse.TopologicalOrderIterator;
-import org.jgrapht.util.SupplierUtil;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
-import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 public class GraphProperties {
 
@@ -65,60 +58,244 @@ public class GraphProperties {
             HAMILTON_P
     );
 
-    private static final Random RAN = new Random(System.nanoTime());
+    /**
+     * The properties whose output or work is |V| times the size of the graph: the traversal orders from |V| / 4 start vertices,
+     * the shortest paths and the maximum flows of |V| / 2 queries; PropertyDriver leaves them out of the default set on large graphs
+     */
+    public static final Set<String> QUADRATIC_PROPERTIES = Set.of(
+            BFS_O,
+            DFS_O,
+            S_P,
+            MAX_FLOW
+    );
+
+    /**
+     * Graphs of more vertices than the threshold are large: their diameter, radius, girth and number of triangles are computed
+     * by the scalable algorithms, each followed by a member "[property]_exact" telling whether the value is exact,
+     * see addDiameter(), addRadius(), addGirth() and addNumTriangles()
+     */
+    public static final int DEFAULT_LARGE_GRAPH_THRESHOLD = 5000;
+    // the work of the scalable algorithms on a large graph, in number of BFS from every vertex
+    public static final int LARGE_GRAPH_BFS = 100;
+
+    // the shared results the properties are computed from, in dependency order
+    private enum Intermediate {
+        COMPONENTS, // componentOf and numOfComponents, also tells whether the graph has a cycle
+        DISTANCES, // the BFS from every vertex: distances, bfsOrders and girth
+        ECCENTRICITIES(DISTANCES);
+
+        private final Intermediate[] requires;
+
+        Intermediate(Intermediate... requires) {
+            this.requires = requires;
+        }
+    }
+
+    // the intermediates of each property, a property absent from the map has none
+    private static final Map<String, Set<Intermediate>> DEPENDENCIES = Map.of(
+            NUM_CC, EnumSet.of(Intermediate.COMPONENTS),
+            CC, EnumSet.of(Intermediate.COMPONENTS),
+            CC_T, EnumSet.of(Intermediate.COMPONENTS),
+            CC_F, EnumSet.of(Intermediate.COMPONENTS),
+            CYC_C, EnumSet.of(Intermediate.COMPONENTS),
+            TOPO_O, EnumSet.of(Intermediate.COMPONENTS),
+            DIAMETER, EnumSet.of(Intermediate.ECCENTRICITIES),
+            RADIUS, EnumSet.of(Intermediate.ECCENTRICITIES),
+            GIRTH, EnumSet.of(Intermediate.DISTANCES),
+            MAX_FLOW, EnumSet.of(Intermediate.COMPONENTS)
+    );
+
+    // the method adding each property, in output order
+    private static final Map<String, Consumer<GraphProperties>> ADDERS = new LinkedHashMap<>();
+
+    static {
+        ADDERS.put(N_C, GraphProperties::addNodeCount);
+        ADDERS.put(E_C, GraphProperties::addEdgeCount);
+        ADDERS.put(E_A, GraphProperties::addEdgeAbsence);
+        ADDERS.put(NUM_CC, GraphProperties::addNumOfConnectedComponents);
+        ADDERS.put(CC, GraphProperties::addConnectedComponents);
+        ADDERS.put(CC_T, GraphProperties::addConnectivityTrue);
+        ADDERS.put(CC_F, GraphProperties::addConnectivityFalse);
+        ADDERS.put(S_T, GraphProperties::addSpanningTree);
+        ADDERS.put(BFS_O, GraphProperties::addBFSOrder);
+        ADDERS.put(DFS_O, GraphProperties::addDFSOrder);
+        ADDERS.put(CYC_C, GraphProperties::addCycle);
+        ADDERS.put(TOPO_O, GraphProperties::addTopologicalSort);
+        ADDERS.put(DIAMETER, GraphProperties::addDiameter);
+        ADDERS.put(RADIUS, GraphProperties::addRadius);
+        ADDERS.put(GIRTH, GraphProperties::addGirth);
+        ADDERS.put(NUM_TRI, GraphProperties::addNumTriangles);
+        ADDERS.put(S_P, GraphProperties::addShortestPath);
+        ADDERS.put(MAX_FLOW, GraphProperties::addMaxFlow);
+        ADDERS.put(HAMILTON_P, GraphProperties::addHamiltonPath);
+    }
+
+    // the table of the search is reused by the graphs of a thread
+    private static final ThreadLocal<HamiltonPath> HAMILTON_PATH = ThreadLocal.withInitial(HamiltonPath::new);
+    // the arc lists and residual capacities are reused by the graphs of a thread
+    private static final ThreadLocal<MaxFlow> MAX_FLOW_ENGINE = ThreadLocal.withInitial(MaxFlow::new);
+
+    private final CsrGraph g; // undirected, unweighted, no loop, no multiple edges
+    private final PropertyWriter out;
+    private final PairSampler sampler; // the sampled vertices and vertex pairs
+    private int largeGraphThreshold = DEFAULT_LARGE_GRAPH_THRESHOLD;
 
-    private final SimpleGraph<Integer, DefaultEdge> g; // undirected, unweighted, no loop, no multiple edges
-    private final JsonObject graphProperties;
+    // intermediates shared by the properties, built on first use
+    private BitsetGraph bitset; // for graphs of at most BitsetGraph.MAX_NODES vertices
+    private int[] componentOf; // component of each vertex, components are numbered by their smallest vertex
+    private int numOfComponents;
+    private int[] eccentricities; // -1 if infinite
+    private int[][] distances; // distances[s][v] : number of edges of a shortest s-v path, -1 if v is not reachable from s
+    private int[][] bfsOrders; // bfsOrders[s] : the vertices in the order of the BFS from s
+    private int girth; // Integer.MAX_VALUE if acyclic, computed along with the distances
+    private EccentricityBounds eccentricityBounds; // for large connected graphs
 
 
+    /**
+     * The vertices of g must be 0, 1, ..., n - 1
+     */
     public GraphProperties(SimpleGraph<Integer, DefaultEdge> g, JsonObject graphProperties) {
+        this(CsrGraph.fromGraph(g), graphProperties);
+    }
+
+    public GraphProperties(CsrGraph g, JsonObject graphProperties) {
+        this(g, PropertyWriter.of(graphProperties));
+    }
+
+    /**
+     * The properties are written to out as they are computed, see PropertyWriter
+     */
+    public GraphProperties(CsrGraph g, PropertyWriter out) {
+        this(g, out, new SplittableRandom());
+    }
+
+    /**
+     * The random choices (queries, start vertices, absent edges) are drawn from the given stream
+     */
+    public GraphProperties(CsrGraph g, PropertyWriter out, SplittableRandom random) {
         this.g = g;
-        this.graphProperties = graphProperties;
+        this.out = out;
+        this.sampler = new PairSampler(random);
+    }
+
+    /**
+     * Writes one JSON line {"graph": graphName, properties...} with the given properties of g, see computeAll()
+     */
+    public static void writeJsonLine(Writer writer, String graphName, CsrGraph g, Set<String> properties, PropertyWriter.Encoding encoding,
+                                     SplittableRandom random) throws IOException {
+        writeJsonLine(writer, graphName, g, properties, encoding, random, DEFAULT_LARGE_GRAPH_THRESHOLD);
+    }
+
+    public static void writeJsonLine(Writer writer, String graphName, CsrGraph g, Set<String> properties, PropertyWriter.Encoding encoding,
+                                     SplittableRandom random, int largeGraphThreshold) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("graph").value(graphName);
+        try {
+            new GraphProperties(g, PropertyWriter.of(json, encoding), random).setLargeGraphThreshold(largeGraphThreshold).computeAll(properties);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endObject();
+        writer.write('\n');
+    }
+
+    /**
+     * Graphs of more than largeGraphThreshold vertices are large, DEFAULT_LARGE_GRAPH_THRESHOLD by default
+     */
+    public GraphProperties setLargeGraphThreshold(int largeGraphThreshold) {
+        if (largeGraphThreshold < 0)
+            throw new IllegalArgumentException("Large graph threshold must be non-negative");
+        this.largeGraphThreshold = largeGraphThreshold;
+        return this;
+    }
+
+    public boolean isLarge() {
+        return g.getNumOfNodes() > largeGraphThreshold;
+    }
+
+    /**
+     * Adds exactly the given properties (names of PROPERTIES), in the order of PROPERTIES.
+     * The intermediates they depend on are resolved first, see DEPENDENCIES, and each is computed once per graph:
+     * e.g., the topological sort only needs the cycle check, which only needs the components,
+     * and when the BFS from every vertex is needed anyway (diameter, radius or girth of a graph of more than BitsetGraph.MAX_NODES
+     * vertices that is not large), the BFS orders reuse it; the bitset algorithms and the scalable ones of large graphs do without it.
+     * Graphs of at most BitsetGraph.MAX_NODES vertices use the bitset algorithms for everything that does not depend on the edge order.
+     */
+    public void computeAll(Set<String> properties) {
+        EnumSet<Intermediate> intermediates = EnumSet.noneOf(Intermediate.class);
+        for (String property : properties) {
+            if (!PROPERTIES.contains(property))
+                throw new IllegalArgumentException("Unknown property " + property);
+            intermediates.addAll(DEPENDENCIES.getOrDefault(property, EnumSet.noneOf(Intermediate.class)));
+        }
+        for (Intermediate intermediate : Intermediate.values()) {
+            for (Intermediate required : intermediate.requires) {
+                if (intermediates.contains(intermediate))
+                    intermediates.add(required);
+            }
+        }
+        // in dependency order
+        for (Intermediate intermediate : intermediates)
+            compute(intermediate);
+
+        for (Map.Entry<String, Consumer<GraphProperties>> adder : ADDERS.entrySet()) {
+            if (properties.contains(adder.getKey()))
+                adder.getValue().accept(this);
+        }
+    }
+
+    /**
+     * The given properties of g as a JSON object, computing only what they need, see computeAll()
+     */
+    public static JsonObject select(CsrGraph g, String... properties) {
+        JsonObject json = new JsonObject();
+        new GraphProperties(g, json).computeAll(new HashSet<>(Arrays.asList(properties)));
+        return json;
+    }
+
+    private void compute(Intermediate intermediate) {
+        switch (intermediate) {
+            case COMPONENTS:
+                computeComponents();
+                break;
+            case DISTANCES:
+                // the bitset algorithms do without them, and the scalable ones of large graphs
+                if (bitset() == null && !isLarge())
+                    distances();
+                break;
+            case ECCENTRICITIES:
+                if (!isLarge())
+                    eccentricities();
+                break;
+            default:
+                throw new IllegalStateException("Unknown intermediate " + intermediate);
+        }
     }
 
     /**
      * node_count : number of nodes
      */
     public void addNodeCount() {
-        int nodeCount = g.vertexSet().size();
-        graphProperties.addProperty(N_C, nodeCount);
+        int nodeCount = g.getNumOfNodes();
+        out.name(N_C).value(nodeCount);
     }
 
     /**
      * edge_count : number of edges
      */
     public void addEdgeCount() {
-        int edgeCount = g.edgeSet().size();
-        graphProperties.addProperty(E_C, edgeCount);
+        int edgeCount = g.getNumOfEdges();
+        out.name(E_C).value(edgeCount);
     }
 
     /**
      * edge_absence : an array of edges that do not exist in the graph
-     * array size is |E| / 2
-     * each element in the array is a string with the form "(u,v)"
+     * array size is |E| / 2, or the number of absent edges if it is smaller
+     * each element in the array is a vertex pair (u,v), and no two elements are the same edge
      */
     public void addEdgeAbsence() {
-        List<Integer> vertices = new ArrayList<>(g.vertexSet());
-        Set<DefaultEdge> edgeSet = g.edgeSet();
-
-        JsonArray pairsArray = new JsonArray();
-
-        if (!edgeSet.isEmpty()) {
-            Random random = new Random(System.nanoTime());
-            int numEdges = edgeSet.size();
-            Set<Pair<Integer, Integer>> property = new HashSet<>();
-            while (property.size() < numEdges / 2) {
-                int u = vertices.get(random.nextInt(vertices.size()));
-                int v = vertices.get(random.nextInt(vertices.size()));
-                if (u == v || g.containsEdge(u, v))
-                    continue;
-                property.add(Pair.of(u, v));
-            }
-
-            for (Pair<Integer, Integer> e : property)
-                addVertexPairs(pairsArray, e);
-        }
-        graphProperties.add(E_A, pairsArray);
+        addPairs(E_A, sampler.sampleAbsentEdges(g, g.getNumOfEdges() / 2));
     }
 
     /**
@@ -126,77 +303,58 @@ public class GraphProperties {
      * connected_components : an array of elements with each representing a connected component in the form of connected_component: an array of vertices
      * connectivity_true : an array of vertex pairs (u,v), such that each pair of vertices belong to the same connected component
      * connectivity_false : an array of vertex pairs (u,v), such that each pair of vertices do not belong to the same connected component
+     * both arrays have |V| / 2 distinct pairs, or all such pairs if there are fewer
      */
     public void addConnectivityInfo() {
-        ConnectivityInspector<Integer, DefaultEdge> connectivityInspector = new ConnectivityInspector<>(g);
-        List<Set<Integer>> connectedComponents = connectivityInspector.connectedSets();
-
-        // add number_of_connected_components
-        int numOfCC = connectedComponents.size();
-        graphProperties.addProperty(NUM_CC, numOfCC);
-
-        // add connected_components
-        JsonArray arrayCC = new JsonArray();
-        for (Set<Integer> cc : connectedComponents) {
-            JsonArray jsonElements = new JsonArray(cc.size());
-            for (Integer v : cc)
-                jsonElements.add(v);
-            arrayCC.add(jsonElements);
-        }
-        graphProperties.add(CC, arrayCC);
-
-
-        // add connectivity
-        Set<Integer> vertexSet = g.vertexSet();
-        int numOfQueries = vertexSet.size() / 2;
-
-        List<Pair<Integer, Integer>> trueQueries = new ArrayList<>(), falseQueries = new ArrayList<>();
-        List<Integer> vertexList = new ArrayList<>(vertexSet);
-
-        List<List<Integer>> cCList = new ArrayList<>();
-        for (Set<Integer> cc : connectedComponents)
-            cCList.add(new ArrayList<>(cc));
-
-        if (numOfCC == 1) { // all vertices are connected
-            while (trueQueries.size() < numOfQueries) {
-                int u = getRandElem(vertexList), v = getRandElem(vertexList);
-                if (u != v)
-                    trueQueries.add(Pair.of(u, v));
-            }
-        } else if (numOfCC == vertexSet.size()) {// all vertices are not connected
-            while (falseQueries.size() < numOfQueries) {
-                int u = getRandElem(vertexList), v = getRandElem(vertexList);
-                if (u != v)
-                    falseQueries.add(Pair.of(u, v));
-            }
-        } else {
-
-            while (trueQueries.size() < numOfQueries) {
-                List<Integer> cc = getRandElem(cCList);
-                int u = getRandElem(cc), v = getRandElem(cc);
-                if (u != v)
-                    trueQueries.add(Pair.of(u, v));
-            }
+        addNumOfConnectedComponents();
+        addConnectedComponents();
+        addConnectivityTrue();
+        addConnectivityFalse();
+    }
 
-            while (falseQueries.size() < numOfQueries) {
-                List<Integer> cc1 = getRandElem(cCList), cc2 = getRandElem(cCList);
-                if (cc1 == cc2)
-                    continue;
+    public void addNumOfConnectedComponents() {
+        computeComponents();
+        out.name(NUM_CC).value(numOfComponents);
+    }
 
-                int uInCC1 = getRandElem(cc1), uInCC2 = getRandElem(cc2);
-                falseQueries.add(Pair.of(uInCC1, uInCC2));
-            }
+    public void addConnectedComponents() {
+        computeComponents();
+        // the vertices of each component, in increasing order
+        int[] start = new int[numOfComponents + 1];
+        for (int c : componentOf)
+            start[c + 1]++;
+        for (int c = 0; c < numOfComponents; c++)
+            start[c + 1] += start[c];
+        int[] vertices = new int[componentOf.length], next = Arrays.copyOf(start, numOfComponents);
+        for (int v = 0; v < componentOf.length; v++)
+            vertices[next[componentOf[v]]++] = v;
+
+        out.name(CC).beginArray();
+        for (int c = 0; c < numOfComponents; c++) {
+            out.beginArray();
+            for (int i = start[c]; i < start[c + 1]; i++)
+                out.value(vertices[i]);
+            out.endArray();
         }
+        out.endArray();
+    }
 
-        JsonArray tQ = new JsonArray(trueQueries.size()), fQ = new JsonArray(falseQueries.size());
-        for (Pair<Integer, Integer> q : trueQueries)
-            addVertexPairs(tQ, q);
-        for (Pair<Integer, Integer> q : falseQueries)
-            addVertexPairs(fQ, q);
+    // |V| / 2 distinct pairs of each kind, or all of them if there are fewer
+    public void addConnectivityTrue() {
+        computeComponents();
+        addPairs(CC_T, sampler.sampleIntraComponentPairs(componentOf, numOfComponents, g.getNumOfNodes() / 2));
+    }
 
-        graphProperties.add("connectivity_true", tQ);
-        graphProperties.add("connectivity_false", fQ);
+    public void addConnectivityFalse() {
+        computeComponents();
+        addPairs(CC_F, sampler.sampleCrossComponentPairs(componentOf, numOfComponents, g.getNumOfNodes() / 2));
+    }
 
+    private void addPairs(String propertyName, int[] pairs) {
+        out.name(propertyName).beginArray();
+        for (int i = 0; i < pairs.length; i += 2)
+            out.pair(pairs[i], pairs[i + 1]);
+        out.endArray();
     }
 
     /**
@@ -205,19 +363,30 @@ public class GraphProperties {
      */
     public void addSpanningTree() {
         // adding spanning tree
-        JsonArray spanningTreeEdges = new JsonArray();
-
-        SimpleGraph<Integer, DefaultEdge> weightedG = transToWeightedG();
-
-        SpanningTreeAlgorithm.SpanningTree<DefaultEdge> st = new KruskalMinimumSpanningTree<>(weightedG).getSpanningTree(); // g is a simple graph with the default edge weigh of 1.0
-        Set<DefaultEdge> edges = st.getEdges();
-        for (DefaultEdge e : edges) {
-            int u = g.getEdgeSource(e);
-            int v = g.getEdgeTarget(e);
-            spanningTreeEdges.add("(" + u + "," + v + ")");
+        out.name(S_T).beginArray();
+
+        // Kruskal with unit weights: keep the edges, in edge order, that join two trees of the forest so far
+        int[] parent = new int[g.getNumOfNodes()];
+        for (int v = 0; v < parent.length; v++)
+            parent[v] = v;
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            int ru = find(parent, u), rv = find(parent, v);
+            if (ru == rv)
+                continue;
+            parent[ru] = rv;
+            out.pair(u, v);
         }
+        out.endArray();
+    }
 
-        graphProperties.add(S_T, spanningTreeEdges);
+    // root of v in the union-find forest, with path halving
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
     }
 
     /**
@@ -226,7 +395,7 @@ public class GraphProperties {
      * order stores the sequence of vertices that were visited during the traversal
      */
     public void addBFSOrder() {
-        addTraversalOrder(v -> new BreadthFirstIterator<>(g, v), BFS_O);
+        addTraversalOrder(this::bfsOrder, BFS_O);
     }
 
     /**
@@ -235,89 +404,244 @@ public class GraphProperties {
      * order stores the sequence of vertices that were visited during the traversal
      */
     public void addDFSOrder() {
-        addTraversalOrder(v -> new DepthFirstIterator<>(g, v), DFS_O);
+        addTraversalOrder(this::dfsOrder, DFS_O);
     }
 
-    private void addTraversalOrder(Function<Integer, Iterator<Integer>> getIte, String propertyName) {
-        List<Integer> verList = new ArrayList<>(g.vertexSet());
-
-        int numOfStartVertices = verList.size() / 4;
-
-        if (numOfStartVertices == 0)
-            numOfStartVertices = 1;
-
-        List<Integer> sV = new ArrayList<>();
-        for (int i = 0; i < numOfStartVertices; i++)
-            sV.add(getRandElem(verList));
+    /**
+     * The order of DepthFirstIterator from s: the vertices discovered but not visited yet are on a stack,
+     * a visited vertex pushes its undiscovered neighbors in edge order, and moves the discovered ones to the top
+     */
+    private int[] dfsOrder(int s) {
+        int n = g.getNumOfNodes();
+        byte[] state = new byte[n]; // 0: undiscovered, 1: on the stack, 2: visited
+        int[] stack = new int[n], order = new int[n];
+        int top = 0, numOfVisited = 0;
+        stack[top++] = s;
+        state[s] = 1;
+        while (top > 0) {
+            int u = stack[--top];
+            state[u] = 2;
+            order[numOfVisited++] = u;
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                int v = g.getNeighbor(u, i);
+                if (state[v] == 0) {
+                    state[v] = 1;
+                    stack[top++] = v;
+                } else if (state[v] == 1) {
+                    int j = top - 1;
+                    while (stack[j] != v)
+                        j--;
+                    System.arraycopy(stack, j + 1, stack, j, top - 1 - j);
+                    stack[top - 1] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(order, numOfVisited);
+    }
 
-        JsonArray jsonElements = new JsonArray(numOfStartVertices);
-        for (Integer v : sV) {
-            String s = getVertexSeq(getIte.apply(v));
+    private void addTraversalOrder(IntFunction<int[]> getOrder, String propertyName) {
+        int numOfStartVertices = Math.max(g.getNumOfNodes() / 4, 1);
 
-            JsonObject object = new JsonObject();
-            object.addProperty("start", v);
-            object.addProperty("order", s.toString());
-            jsonElements.add(object);
+        out.name(propertyName).beginArray();
+        for (int v : sampler.sampleVertices(g.getNumOfNodes(), numOfStartVertices)) {
+            out.beginObject();
+            out.name("start").value(v);
+            out.name("order").sequence(getOrder.apply(v));
+            out.endObject();
         }
-        graphProperties.add(propertyName, jsonElements);
+        out.endArray();
     }
 
     /**
      * cycle_check : boolean, indicating whether the graph has a cycle
      */
     public void addCycle() {
-        CycleDetector<Integer, DefaultEdge> cycleDetector = new CycleDetector<>(g);
-        graphProperties.addProperty(CYC_C, cycleDetector.detectCycles());
+        out.name(CYC_C).value(hasCycle());
+    }
+
+    // an undirected simple graph is a forest iff it has n - c edges, c the number of components
+    private boolean hasCycle() {
+        computeComponents();
+        return g.getNumOfEdges() > g.getNumOfNodes() - numOfComponents;
     }
 
     /**
      * topological_sort_order : a sequence of vertices, representing a topological order
      * notice that the undirected graph is translated into a directed graph for the computation, where each undirected edge (u,v) is treated a directed edge (u,v) from u to v
+     * if the undirected graph has a cycle, the order is empty
      */
     public void addTopologicalSort() {
-        CycleDetector<Integer, DefaultEdge> cycleDetector = new CycleDetector<>(g);
-        if (cycleDetector.detectCycles())
-            graphProperties.addProperty(CYC_C, ""); // g has cycles, such that the topological sort is empty
-        else {
-            SimpleDirectedGraph<Integer, DefaultEdge> directedGraph = transToDirectedG();
-            graphProperties.addProperty(TOPO_O, getVertexSeq(new TopologicalOrderIterator<>(directedGraph)));
+        if (hasCycle())
+            out.name(TOPO_O).sequence(new int[0]); // g has cycles, such that the topological sort is empty
+        else
+            out.name(TOPO_O).sequence(topologicalOrder());
+    }
+
+    // Kahn's algorithm on the edges oriented from source to target, the sources are taken in FIFO order, as TopologicalOrderIterator does
+    private int[] topologicalOrder() {
+        int n = g.getNumOfNodes();
+        int[] inDegree = new int[n];
+        for (int e = 0; e < g.getNumOfEdges(); e++)
+            inDegree[g.getEdgeTarget(e)]++;
+        int[] order = new int[n];
+        int head = 0, tail = 0;
+        for (int v = 0; v < n; v++) {
+            if (inDegree[v] == 0)
+                order[tail++] = v;
+        }
+        while (head < tail) {
+            int u = order[head++];
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                int e = g.getIncidentEdge(u, i);
+                if (g.getEdgeSource(e) == u && --inDegree[g.getEdgeTarget(e)] == 0)
+                    order[tail++] = g.getEdgeTarget(e);
+            }
         }
+        return Arrays.copyOf(order, tail);
     }
 
     /**
      * diameter : d, an integer indicating the longest shortest path on the graph
      * if the graph is disconnected, d is infinite, denoted as inf
+     * for a large graph, d is the lower bound of EccentricityBounds, and if it is not exact, the upper bound follows as diameter_upper_bound
      */
     public void addDiameter() {
-        double d = GraphMetrics.getDiameter(transToWeightedG());
-        if (d == Double.POSITIVE_INFINITY)
-            graphProperties.addProperty(DIAMETER, "inf");
-        else
-            graphProperties.addProperty(DIAMETER, d);
+        if (isLarge()) {
+            EccentricityBounds bounds = eccentricityBounds();
+            if (bounds == null)
+                addBoundedLength(DIAMETER, trivialLength(), null, trivialLength());
+            else
+                addBoundedLength(DIAMETER, bounds.getDiameterLowerBound(), DIAMETER + "_upper_bound", bounds.getDiameterUpperBound());
+            return;
+        }
+        double d = 0;
+        for (int eccentricity : eccentricities())
+            d = Math.max(d, eccentricity < 0 ? Double.POSITIVE_INFINITY : eccentricity);
+        addLength(DIAMETER, d);
     }
 
     /**
      * radius : d, an integer indicate the radium on the graph
      * if the graph is disconnected, d is infinite, denoted as inf
+     * for a large graph, d is the upper bound of EccentricityBounds, and if it is not exact, the lower bound follows as radius_lower_bound
      */
     public void addRadius() {
-        double d = GraphMetrics.getRadius(transToWeightedG());
+        if (isLarge()) {
+            EccentricityBounds bounds = eccentricityBounds();
+            if (bounds == null)
+                addBoundedLength(RADIUS, trivialLength(), null, trivialLength());
+            else
+                addBoundedLength(RADIUS, bounds.getRadiusUpperBound(), RADIUS + "_lower_bound", bounds.getRadiusLowerBound());
+            return;
+        }
+        int[] eccentricities = eccentricities();
+        double d = eccentricities.length == 0 ? 0 : Double.POSITIVE_INFINITY;
+        for (int eccentricity : eccentricities)
+            d = Math.min(d, eccentricity < 0 ? Double.POSITIVE_INFINITY : eccentricity);
+        addLength(RADIUS, d);
+    }
+
+    // the legacy encoding writes diameter and radius as doubles, e.g., 3.0, the compact one as integers
+    private void addLength(String propertyName, double d) {
+        out.name(propertyName);
         if (d == Double.POSITIVE_INFINITY)
-            graphProperties.addProperty(RADIUS, "inf");
+            out.infinity();
+        else if (out.getEncoding() == PropertyWriter.Encoding.COMPACT)
+            out.value((long) d);
         else
-            graphProperties.addProperty(RADIUS, d);
+            out.value(d);
+    }
+
+    // the value, whether it is exact, and the other bound if it is not
+    private void addBoundedLength(String propertyName, double d, String boundName, double bound) {
+        addLength(propertyName, d);
+        out.name(propertyName + "_exact").value(d == bound);
+        if (d != bound)
+            addLength(boundName, bound);
+    }
+
+    // the diameter and radius of a large graph without EccentricityBounds: 0 without vertices, infinite if disconnected
+    private double trivialLength() {
+        return numOfComponents == 0 ? 0 : Double.POSITIVE_INFINITY;
     }
 
     /**
      * girth : l, the length (number of edges) of the smallest cycle in the graph
      * if the graph is acyclic, l is infinite, denoted as inf
+     * for a large graph, l is the length of the shortest cycle found by truncatedGirth(), followed by girth_exact
      */
     public void addGirth() {
-        int l = GraphMetrics.getGirth(g);
+        int l;
+        boolean exact = true;
+        if (isLarge()) {
+            exact = truncatedGirth();
+            l = girth;
+        } else if (bitset() != null) {
+            l = bitset.getGirth();
+        } else {
+            distances();
+            l = girth;
+        }
         if (l == Integer.MAX_VALUE)
-            graphProperties.addProperty(GIRTH, "inf");
+            out.name(GIRTH).infinity();
         else
-            graphProperties.addProperty(GIRTH, l);
+            out.name(GIRTH).value(l);
+        if (isLarge())
+            out.name(GIRTH + "_exact").value(exact);
+    }
+
+    /**
+     * The girth of a large graph, by a BFS from each vertex in decreasing order of degree,
+     * stopped at the depth from which no cycle shorter than the shortest one so far can close:
+     * the shortest cycles through s are found within depth floor(girth / 2) of s, so the BFS from every vertex gives the girth.
+     * Stops when the vertices are exhausted, a triangle is found, or after the edge scans of LARGE_GRAPH_BFS full BFS,
+     * and returns whether girth is exact, otherwise it is an upper bound, Integer.MAX_VALUE if no cycle was found
+     */
+    private boolean truncatedGirth() {
+        int n = g.getNumOfNodes();
+        girth = Integer.MAX_VALUE;
+        // a forest has no cycle
+        computeComponents();
+        if (g.getNumOfEdges() == n - numOfComponents)
+            return true;
+
+        Integer[] sources = new Integer[n];
+        for (int v = 0; v < n; v++)
+            sources[v] = v;
+        Arrays.sort(sources, (u, v) -> Integer.compare(g.degreeOf(v), g.degreeOf(u)));
+        long budget = (long) LARGE_GRAPH_BFS * (n + 2L * g.getNumOfEdges());
+        int[] dist = new int[n], parent = new int[n], queue = new int[n], reached = new int[n];
+        Arrays.fill(dist, -1);
+        for (int s : sources) {
+            if (girth == 3)
+                return true;
+            if (budget <= 0)
+                return false;
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            dist[s] = 0;
+            parent[s] = -1;
+            while (head < tail) {
+                int u = queue[head++];
+                if (2 * dist[u] + 1 >= girth)
+                    break;
+                budget -= g.degreeOf(u) + 1;
+                for (int i = 0; i < g.degreeOf(u); i++) {
+                    int v = g.getNeighbor(u, i);
+                    if (dist[v] < 0) {
+                        dist[v] = dist[u] + 1;
+                        parent[v] = u;
+                        queue[tail++] = v;
+                    } else if (parent[u] != v) {
+                        girth = Math.min(girth, dist[u] + dist[v] + 1);
+                    }
+                }
+            }
+            // resets the vertices reached, rather than all of dist
+            for (int i = 0; i < tail; i++)
+                dist[queue[i]] = -1;
+        }
+        return true;
     }
 
 
@@ -325,59 +649,289 @@ public class GraphProperties {
      * number_of_triangles : the number of triangles in the graph
      */
     public void addNumTriangles() {
-        graphProperties.addProperty(NUM_TRI, GraphMetrics.getNumberOfTriangles(g));
+        out.name(NUM_TRI).value(bitset() != null ? bitset.countTriangles() : countTriangles(g));
+        // the count is exact at any size
+        if (isLarge())
+            out.name(NUM_TRI + "_exact").value(true);
     }
 
     /**
-     * shortest_path :
+     * Counts each triangle once, from its lowest vertex in the order of (degree, id):
+     * the edges are oriented from the lower to the higher end, and every vertex has O(sqrt(m)) out-neighbors,
+     * so marking the out-neighbors of u and scanning those of each of them takes O(m sqrt(m)) in total
      */
-    public void addShortestPath() { // todo:
+    private static long countTriangles(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                if (isLower(g, u, g.getNeighbor(u, i)))
+                    offsets[u + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++)
+            offsets[u + 1] += offsets[u];
+        int[] higher = new int[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int next = offsets[u];
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                int v = g.getNeighbor(u, i);
+                if (isLower(g, u, v))
+                    higher[next++] = v;
+            }
+        }
 
+        int[] mark = new int[n];
+        Arrays.fill(mark, -1);
+        long count = 0;
+        for (int u = 0; u < n; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++)
+                mark[higher[i]] = u;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int v = higher[i];
+                for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                    if (mark[higher[j]] == u)
+                        count++;
+                }
+            }
+        }
+        return count;
+    }
 
+    private static boolean isLower(CsrGraph g, int u, int v) {
+        return g.degreeOf(u) < g.degreeOf(v) || g.degreeOf(u) == g.degreeOf(v) && u < v;
     }
 
-    private String getVertexSeq(Iterator<Integer> ite) {
-        StringBuilder s = new StringBuilder();
-        s.append("(");
-        while (ite.hasNext())
-            s.append(ite.next()).append(",");
+    /**
+     * shortest_path : an array of queries (source, target, length, path) on distinct random vertex pairs, |V| / 2 of them
+     * length is the number of edges of a shortest source-target path, if the vertices are disconnected, it is infinite, denoted as inf
+     * path stores the sequence of vertices of one shortest path, empty if the vertices are disconnected
+     */
+    public void addShortestPath() {
+        int n = g.getNumOfNodes();
+        int[] queries = sampler.sampleVertexPairs(n, n / 2);
+        int numOfQueries = queries.length / 2;
+
+        // the sources by first appearance, MultiSourceBfs.MAX_SOURCES of them per BFS pass,
+        // and the queries grouped by the pass of their source, queries[2 * byPass[i]] for i in [passStart[p], passStart[p + 1])
+        int[] sourceIndex = new int[n], sources = new int[numOfQueries];
+        Arrays.fill(sourceIndex, -1);
+        int numOfSources = 0;
+        for (int i = 0; i < numOfQueries; i++) {
+            if (sourceIndex[queries[2 * i]] < 0) {
+                sourceIndex[queries[2 * i]] = numOfSources;
+                sources[numOfSources++] = queries[2 * i];
+            }
+        }
+        int numOfPasses = (numOfSources + MultiSourceBfs.MAX_SOURCES - 1) / MultiSourceBfs.MAX_SOURCES;
+        int[] passStart = new int[numOfPasses + 1];
+        for (int i = 0; i < numOfQueries; i++)
+            passStart[sourceIndex[queries[2 * i]] / MultiSourceBfs.MAX_SOURCES + 1]++;
+        for (int p = 0; p < numOfPasses; p++)
+            passStart[p + 1] += passStart[p];
+        int[] byPass = new int[numOfQueries], next = Arrays.copyOf(passStart, numOfPasses);
+        for (int i = 0; i < numOfQueries; i++)
+            byPass[next[sourceIndex[queries[2 * i]] / MultiSourceBfs.MAX_SOURCES]++] = i;
+
+        // one pass at a time, its queries are written before the next pass reuses the parents
+        MultiSourceBfs bfs = new MultiSourceBfs(g);
+        int[] path = new int[n];
+        out.name(S_P).beginArray();
+        for (int p = 0; p < numOfPasses; p++) {
+            int first = p * MultiSourceBfs.MAX_SOURCES;
+            bfs.run(sources, first, Math.min(first + MultiSourceBfs.MAX_SOURCES, numOfSources));
+            for (int i = passStart[p]; i < passStart[p + 1]; i++) {
+                int source = queries[2 * byPass[i]], target = queries[2 * byPass[i] + 1], b = sourceIndex[source] - first;
+                out.beginObject();
+                out.name("source").value(source);
+                out.name("target").value(target);
+                if (!bfs.isReached(b, target)) {
+                    out.name("length").infinity();
+                    out.name("path").sequence(path, 0);
+                } else {
+                    int length = 0;
+                    for (int v = target; v != source; v = bfs.getParent(b, v))
+                        length++;
+                    for (int v = target, j = length; j >= 0; v = bfs.getParent(b, v), j--)
+                        path[j] = v;
+                    out.name("length").value(length);
+                    out.name("path").sequence(path, length + 1);
+                }
+                out.endObject();
+            }
+        }
+        out.endArray();
+    }
 
-        if (s.length() == 1)
-            s.deleteCharAt(0);
-        else
-            s.deleteCharAt(s.length() - 1).append(")");
+    /**
+     * maximum_flow : an array of queries (source, target, flow) on distinct random vertex pairs, |V| / 2 of them
+     * every edge has capacity 1 in both directions, so flow is the number of edge-disjoint source-target paths, 0 if the vertices are disconnected
+     */
+    public void addMaxFlow() {
+        int[] queries = sampler.sampleVertexPairs(g.getNumOfNodes(), g.getNumOfNodes() / 2);
+
+        MaxFlow maxFlow = MAX_FLOW_ENGINE.get();
+        maxFlow.setGraph(g);
+        computeComponents();
+
+        out.name(MAX_FLOW).beginArray();
+        for (int i = 0; i < queries.length; i += 2) {
+            int u = queries[i], v = queries[i + 1];
+            out.beginObject();
+            out.name("source").value(u);
+            out.name("target").value(v);
+            out.name("flow").value(componentOf[u] == componentOf[v] ? maxFlow.maxFlow(u, v) : 0);
+            out.endObject();
+        }
+        out.endArray();
+    }
 
-        return s.toString();
+    /**
+     * hamilton_path : a sequence of vertices, representing a path that visits every vertex exactly once
+     * if the graph has no hamilton path, the sequence is empty
+     * only computed for graphs of at most HamiltonPath.MAX_NODES vertices, larger graphs get null (unknown) in both encodings
+     */
+    public void addHamiltonPath() {
+        out.name(HAMILTON_P);
+        if (g.getNumOfNodes() > HamiltonPath.MAX_NODES) {
+            out.nullValue();
+            return;
+        }
+        int[] path = HAMILTON_PATH.get().find(g);
+        out.sequence(path == null ? new int[0] : path);
     }
 
-    private void addVertexPairs(JsonArray jsonElements, Pair<Integer, Integer> vertexPair) {
-//        JsonObject pair = new JsonObject();
-//        pair.addProperty("first", vertexPair.getFirst());
-//        pair.addProperty("second", vertexPair.getSecond());
-//        jsonElements.add(pair);
-        jsonElements.add("(" + vertexPair.getFirst() + "," + vertexPair.getSecond() + ")");
+    private BitsetGraph bitset() {
+        if (bitset == null && BitsetGraph.isSmall(g))
+            bitset = new BitsetGraph(g);
+        return bitset;
     }
 
-    private SimpleGraph<Integer, DefaultEdge> transToWeightedG() {
-        SimpleGraph<Integer, DefaultEdge> weightedG = new SimpleGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), true);
-        for (int v : g.vertexSet())
-            weightedG.addVertex(v);
-        for (DefaultEdge e : g.edgeSet())
-            weightedG.addEdge(g.getEdgeSource(e), g.getEdgeTarget(e));
-        return weightedG;
+    // null if the graph is disconnected or has no vertex
+    private EccentricityBounds eccentricityBounds() {
+        computeComponents();
+        if (eccentricityBounds == null && numOfComponents == 1) {
+            eccentricityBounds = new EccentricityBounds(g);
+            eccentricityBounds.refine(LARGE_GRAPH_BFS);
+        }
+        return eccentricityBounds;
+    }
+
+    private int[] eccentricities() {
+        if (eccentricities != null)
+            return eccentricities;
+        if (bitset() != null) {
+            eccentricities = bitset.getEccentricities();
+            return eccentricities;
+        }
+        int[][] distances = distances();
+        eccentricities = new int[distances.length];
+        for (int s = 0; s < distances.length; s++) {
+            for (int dist : distances[s]) {
+                if (dist < 0) {
+                    eccentricities[s] = -1;
+                    break;
+                }
+                eccentricities[s] = Math.max(eccentricities[s], dist);
+            }
+        }
+        return eccentricities;
     }
 
-    private SimpleDirectedGraph<Integer, DefaultEdge> transToDirectedG() {
-        SimpleDirectedGraph<Integer, DefaultEdge> directedGraph = new SimpleDirectedGraph<>(SupplierUtil.createIntegerSupplier(), SupplierUtil.createDefaultEdgeSupplier(), false);
-        for (Integer v : g.vertexSet())
-            directedGraph.addVertex(v);
-        for (DefaultEdge e : g.edgeSet())
-            directedGraph.addEdge(g.getEdgeSource(e), g.getEdgeTarget(e));
-        return directedGraph;
+    // labels the components by BFS from the vertices in increasing order
+    private void computeComponents() {
+        if (componentOf != null)
+            return;
+        if (bitset() != null) {
+            componentOf = bitset.getComponents();
+            numOfComponents = 0;
+            for (int c : componentOf)
+                numOfComponents = Math.max(numOfComponents, c + 1);
+            return;
+        }
+        int n = g.getNumOfNodes();
+        componentOf = new int[n];
+        Arrays.fill(componentOf, -1);
+        int[] queue = new int[n];
+        numOfComponents = 0;
+        for (int s = 0; s < n; s++) {
+            if (componentOf[s] >= 0)
+                continue;
+            int head = 0, tail = 0;
+            queue[tail++] = s;
+            componentOf[s] = numOfComponents;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int i = 0; i < g.degreeOf(u); i++) {
+                    int v = g.getNeighbor(u, i);
+                    if (componentOf[v] < 0) {
+                        componentOf[v] = numOfComponents;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            numOfComponents++;
+        }
+    }
+
+    /**
+     * Runs a BFS from every vertex, keeping the distances and the visit orders, and the girth:
+     * in the BFS from s, a non-tree edge (u,v) closes a cycle of length at most dist(u) + dist(v) + 1 through s,
+     * with equality for the shortest cycles through s, so the minimum over all s is the girth
+     */
+    private int[][] distances() {
+        if (distances != null)
+            return distances;
+        int n = g.getNumOfNodes();
+        distances = new int[n][];
+        bfsOrders = new int[n][];
+        girth = Integer.MAX_VALUE;
+        int[] parent = new int[n];
+        for (int s = 0; s < n; s++) {
+            int[] dist = new int[n];
+            Arrays.fill(dist, -1);
+            int[] queue = bfs(g, s, dist, parent);
+            distances[s] = dist;
+            bfsOrders[s] = queue;
+            for (int u : queue) {
+                for (int i = 0; i < g.degreeOf(u); i++) {
+                    int v = g.getNeighbor(u, i);
+                    if (u < v && parent[u] != v && parent[v] != u)
+                        girth = Math.min(girth, dist[u] + dist[v] + 1);
+                }
+            }
+        }
+        return distances;
+    }
+
+    // the vertices reachable from s in BFS order (neighbors in edge order, as BreadthFirstIterator), dist and parent filled for them
+    private static int[] bfs(CsrGraph g, int s, int[] dist, int[] parent) {
+        int[] queue = new int[g.getNumOfNodes()];
+        int head = 0, tail = 0;
+        queue[tail++] = s;
+        dist[s] = 0;
+        parent[s] = -1;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int i = 0; i < g.degreeOf(u); i++) {
+                int v = g.getNeighbor(u, i);
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    parent[v] = u;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
     }
 
-    private static <T> T getRandElem(List<T> list) {
-        return list.get(RAN.nextInt(list.size()));
+    private int[] bfsOrder(int s) {
+        if (bfsOrders != null)
+            return bfsOrders[s];
+        int n = g.getNumOfNodes();
+        int[] dist = new int[n];
+        Arrays.fill(dist, -1);
+        return bfs(g, s, dist, new int[n]);
     }
 
 }
@@ -0,0 +1,11 @@
+package org.gai.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the serialized graphs of one (n, generator) pair, graphs are written in increasing id order
+ */
+public interface GraphSink extends Closeable {
+    void write(int graphId, String content) throws IOException;
+}
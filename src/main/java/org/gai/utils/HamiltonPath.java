@@ -0,0 +1,138 @@
+package org.gai.utils;
+
+import java.util.Arrays;
+
+/**
+ * Exact Hamiltonian path search on small graphs (at most MAX_NODES vertices).
+ * <p>
+ * Graphs that cannot have one are rejected first: disconnected graphs, and graphs with more than two vertices of degree 1
+ * (an isolated vertex makes the graph disconnected). Then a depth-first search that prefers the neighbor with the fewest
+ * unvisited neighbors gets a bounded number of steps, which is enough on most dense graphs.
+ * Otherwise reachable[mask], the bitmask of the vertices v such that some path visits exactly the vertices of mask and ends in v,
+ * is computed over the masks in increasing order. All start vertices are handled by the same pass
+ * (only a vertex of degree 1 if there is one, since a path through it starts or ends there), and a witness is read back from the table.
+ * <p>
+ * An instance keeps its table between calls (2^MAX_NODES ints at most) and is not thread-safe.
+ */
+public class HamiltonPath {
+    public static final int MAX_NODES = 20;
+    private static final int SEARCH_BUDGET = 1 << 12;
+
+    private int n;
+    private int[] adjacency = new int[0];
+    private int[] reachable = new int[0];
+    private int[] path;
+    private int budget;
+
+    /**
+     * Returns the vertices of a Hamiltonian path of g in path order, or null if there is none
+     */
+    public int[] find(CsrGraph g) {
+        n = g.getNumOfNodes();
+        if (n > MAX_NODES)
+            throw new IllegalArgumentException("Number of vertices must be at most " + MAX_NODES);
+        if (n == 0)
+            return null;
+        if (adjacency.length < n)
+            adjacency = new int[n];
+        Arrays.fill(adjacency, 0, n, 0);
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            adjacency[u] |= 1 << v;
+            adjacency[v] |= 1 << u;
+        }
+
+        int leaves = 0;
+        for (int v = 0; v < n; v++) {
+            if (Integer.bitCount(adjacency[v]) == 1)
+                leaves |= 1 << v;
+        }
+        if (Integer.bitCount(leaves) > 2 || !isConnected())
+            return null;
+        int starts = leaves != 0 ? Integer.lowestOneBit(leaves) : (1 << n) - 1;
+
+        path = new int[n];
+        budget = SEARCH_BUDGET;
+        for (int rest = starts; rest != 0 && budget > 0; rest &= rest - 1) {
+            int s = Integer.numberOfTrailingZeros(rest);
+            path[0] = s;
+            if (search(1, 1 << s))
+                return path;
+        }
+        return findByDynamicProgramming(starts);
+    }
+
+    private boolean isConnected() {
+        int all = (1 << n) - 1, visited = 1, frontier = 1;
+        while (frontier != 0) {
+            int next = 0;
+            for (int rest = frontier; rest != 0; rest &= rest - 1)
+                next |= adjacency[Integer.numberOfTrailingZeros(rest)];
+            frontier = next & ~visited;
+            visited |= frontier;
+        }
+        return visited == all;
+    }
+
+    // extends path[0..length) visiting the vertices of mask, false once the budget is spent
+    private boolean search(int length, int mask) {
+        if (length == n)
+            return true;
+        if (--budget < 0)
+            return false;
+        int candidates = adjacency[path[length - 1]] & ~mask;
+        while (candidates != 0) {
+            // the candidate with the fewest unvisited neighbors first
+            int best = -1, bestDegree = Integer.MAX_VALUE;
+            for (int rest = candidates; rest != 0; rest &= rest - 1) {
+                int w = Integer.numberOfTrailingZeros(rest);
+                int degree = Integer.bitCount(adjacency[w] & ~mask);
+                if (degree < bestDegree) {
+                    best = w;
+                    bestDegree = degree;
+                }
+            }
+            candidates &= ~(1 << best);
+            path[length] = best;
+            if (search(length + 1, mask | (1 << best)))
+                return true;
+            if (budget < 0)
+                return false;
+        }
+        return false;
+    }
+
+    private int[] findByDynamicProgramming(int starts) {
+        int full = (1 << n) - 1;
+        if (reachable.length < full + 1)
+            reachable = new int[full + 1];
+        Arrays.fill(reachable, 0, full + 1, 0);
+        for (int rest = starts; rest != 0; rest &= rest - 1)
+            reachable[Integer.lowestOneBit(rest)] = Integer.lowestOneBit(rest);
+
+        for (int mask = 1; mask < full; mask++) {
+            int ends = reachable[mask];
+            if (ends == 0)
+                continue;
+            int next = 0;
+            for (int rest = ends; rest != 0; rest &= rest - 1)
+                next |= adjacency[Integer.numberOfTrailingZeros(rest)];
+            for (int rest = next & ~mask; rest != 0; rest &= rest - 1) {
+                int w = Integer.lowestOneBit(rest);
+                reachable[mask | w] |= w;
+            }
+        }
+        if (reachable[full] == 0)
+            return null;
+
+        // walk back from an end: the previous vertex is an end of the rest of the mask adjacent to the current one
+        int v = Integer.numberOfTrailingZeros(reachable[full]), mask = full;
+        path[n - 1] = v;
+        for (int i = n - 2; i >= 0; i--) {
+            mask &= ~(1 << v);
+            v = Integer.numberOfTrailingZeros(reachable[mask] & adjacency[v]);
+            path[i] = v;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,153 @@
+package org.gai.utils;
+
+import org.gai.generate.EdgeSink;
+import org.gai.generate.StreamingGraphGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the output of a StreamingGraphGenerator in the CSV format of FileUtils.serializeGraph, without building the graph.
+ * <p>
+ * Numbers are formatted straight into a large byte buffer. When the number of edges is only known after the generation,
+ * the header reserves EDGE_COUNT_WIDTH characters for it and the count is patched in place at the end, padded with spaces.
+ * A compressed file cannot be patched, so the generator is run twice: once to count the edges, once to write them,
+ * which needs a generator whose output only depends on its random stream.
+ */
+public class LargeGraphWriter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int EDGE_COUNT_WIDTH = 20;
+    private static final String EDGE_COUNT_PREFIX = "# number of edges: ";
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long bytesWritten;
+    private long edgesWritten;
+    private OutputStream out;
+
+    /**
+     * Writes the graph generated by generatorFactory (called once per pass) to file,
+     * gzipped if the output is compressed, and returns the number of edges
+     */
+    public static long write(Path file, String generatorName, Supplier<StreamingGraphGenerator> generatorFactory) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        LargeGraphWriter writer = new LargeGraphWriter();
+        if (!CompressionUtils.isCompressOutput())
+            return writer.writePlain(file, generatorName, generatorFactory.get());
+
+        StreamingGraphGenerator generator = generatorFactory.get();
+        long numOfEdges = generator.getNumOfEdges();
+        if (numOfEdges < 0) {
+            long[] count = {0};
+            generator.generate((u, v) -> count[0]++);
+            numOfEdges = count[0];
+            generator = generatorFactory.get();
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            writer.out = out;
+            writer.writeGraph(generatorName, generator, Long.toString(numOfEdges));
+        }
+        return numOfEdges;
+    }
+
+    private long writePlain(Path file, String generatorName, StreamingGraphGenerator generator) throws IOException {
+        long numOfEdges = generator.getNumOfEdges();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    ByteBuffer bb = ByteBuffer.wrap(bytes, offset, length);
+                    while (bb.hasRemaining())
+                        channel.write(bb);
+                }
+            };
+            String edgeCount = numOfEdges >= 0 ? Long.toString(numOfEdges) : " ".repeat(EDGE_COUNT_WIDTH);
+            long edgeCountOffset = writeGraph(generatorName, generator, edgeCount);
+
+            if (numOfEdges < 0) {
+                numOfEdges = edgesWritten;
+                String patched = String.format("%-" + EDGE_COUNT_WIDTH + "d", numOfEdges);
+                channel.write(ByteBuffer.wrap(patched.getBytes(StandardCharsets.US_ASCII)), edgeCountOffset);
+            }
+        }
+        return numOfEdges;
+    }
+
+    // writes the whole file, returns the offset of the edge count in it
+    private long writeGraph(String generatorName, StreamingGraphGenerator generator, String edgeCount) throws IOException {
+        int n = generator.getNumOfNodes();
+        if (generatorName != null)
+            append("# " + generatorName + " graphs\n");
+        append("# number of vertices: " + n + "\n");
+        append(EDGE_COUNT_PREFIX);
+        long edgeCountOffset = bytesWritten + position;
+        append(edgeCount + "\n");
+
+        for (int v = 0; v < n; v++) {
+            appendInt(v);
+            appendByte('\n');
+        }
+
+        edgesWritten = 0;
+        EdgeSink sink = (u, v) -> {
+            appendInt(u);
+            appendByte(' ');
+            appendInt(v);
+            appendByte('\n');
+            edgesWritten++;
+        };
+        generator.generate(sink);
+        flush();
+        return edgeCountOffset;
+    }
+
+    private void append(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++)
+            appendByte(s.charAt(i));
+    }
+
+    private void appendInt(int value) throws IOException {
+        if (position + 11 > BUFFER_SIZE)
+            flush();
+        if (value == 0) {
+            buffer[position++] = '0';
+            return;
+        }
+        int start = position;
+        while (value > 0) {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        // reverse the digits
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte t = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = t;
+        }
+    }
+
+    private void appendByte(int b) throws IOException {
+        if (position == BUFFER_SIZE)
+            flush();
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() throws IOException {
+        out.write(buffer, 0, position);
+        bytesWritten += position;
+        position = 0;
+    }
+}
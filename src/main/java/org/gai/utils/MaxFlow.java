@@ -0,0 +1,121 @@
+package org.gai.utils;
+
+import java.util.Arrays;
+
+/**
+ * Maximum s-t flow with unit capacities on the undirected edges of a CsrGraph, by Dinic's algorithm on int arrays.
+ * <p>
+ * Edge e gives the arcs 2e (source to target) and 2e + 1 (target to source), each one the reverse of the other,
+ * both with capacity 1, so that a unit of flow pushed along one frees a unit on the other.
+ * A phase computes the BFS levels of the residual graph and augments along shortest paths one unit at a time,
+ * removing the dead ends; the flow is at most min(deg(s), deg(t)) and the search stops as soon as it is reached.
+ * <p>
+ * setGraph() builds the arc lists once per graph, maxFlow() only resets the residual capacities,
+ * and all buffers grow as needed and are reused across graphs. An instance is not thread-safe.
+ */
+public class MaxFlow {
+    private int n;
+    private int numOfArcs;
+    private int[] offsets = new int[1]; // the arcs out of v are arcs[offsets[v]], ..., arcs[offsets[v + 1] - 1]
+    private int[] arcs = new int[0];
+    private int[] head = new int[0]; // head[a] : the vertex arc a points to
+    private int[] residual = new int[0];
+    private int[] level = new int[0];
+    private int[] next = new int[0]; // next arc to try out of each vertex in the current phase
+    private int[] queue = new int[0];
+    private int[] pathArcs = new int[0];
+
+    public void setGraph(CsrGraph g) {
+        n = g.getNumOfNodes();
+        numOfArcs = 2 * g.getNumOfEdges();
+        if (offsets.length < n + 1) {
+            offsets = new int[n + 1];
+            level = new int[n];
+            next = new int[n];
+            queue = new int[n];
+            pathArcs = new int[n];
+        }
+        if (arcs.length < numOfArcs) {
+            arcs = new int[numOfArcs];
+            head = new int[numOfArcs];
+            residual = new int[numOfArcs];
+        }
+
+        offsets[0] = 0;
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + g.degreeOf(v);
+            for (int i = 0; i < g.degreeOf(v); i++) {
+                int e = g.getIncidentEdge(v, i);
+                int a = g.getEdgeSource(e) == v ? 2 * e : 2 * e + 1;
+                arcs[offsets[v] + i] = a;
+                head[a] = g.getNeighbor(v, i);
+            }
+        }
+    }
+
+    /**
+     * The value of a maximum flow from s to t in the graph of the last setGraph(), s != t
+     */
+    public int maxFlow(int s, int t) {
+        if (s == t)
+            throw new IllegalArgumentException("Source and sink must be different");
+        int bound = Math.min(offsets[s + 1] - offsets[s], offsets[t + 1] - offsets[t]);
+        Arrays.fill(residual, 0, numOfArcs, 1);
+
+        int flow = 0;
+        while (flow < bound && computeLevels(s, t)) {
+            System.arraycopy(offsets, 0, next, 0, n);
+            while (flow < bound && augment(s, t))
+                flow++;
+        }
+        return flow;
+    }
+
+    // BFS levels from s in the residual graph, true iff t is reachable
+    private boolean computeLevels(int s, int t) {
+        Arrays.fill(level, 0, n, -1);
+        int headIndex = 0, tail = 0;
+        queue[tail++] = s;
+        level[s] = 0;
+        while (headIndex < tail) {
+            int v = queue[headIndex++];
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int a = arcs[i], w = head[a];
+                if (residual[a] > 0 && level[w] < 0) {
+                    level[w] = level[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return level[t] >= 0;
+    }
+
+    // pushes one unit along a path of the level graph, vertices found to be dead ends are taken out of it
+    private boolean augment(int s, int t) {
+        int depth = 0, v = s;
+        while (v != t) {
+            boolean advanced = false;
+            for (; next[v] < offsets[v + 1]; next[v]++) {
+                int a = arcs[next[v]], w = head[a];
+                if (residual[a] > 0 && level[w] == level[v] + 1) {
+                    pathArcs[depth++] = a;
+                    v = w;
+                    advanced = true;
+                    break;
+                }
+            }
+            if (!advanced) {
+                level[v] = -1;
+                if (depth == 0)
+                    return false;
+                v = head[pathArcs[--depth] ^ 1];
+                next[v]++;
+            }
+        }
+        for (int i = 0; i < depth; i++) {
+            residual[pathArcs[i]]--;
+            residual[pathArcs[i] ^ 1]++;
+        }
+        return true;
+    }
+}
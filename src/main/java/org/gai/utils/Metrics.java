@@ -0,0 +1,302 @@
+package org.gai.utils;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import jdk.jfr.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the stages of a run (generation, writing, augmentation, properties, prompts),
+ * per (stage, n, generator), and the console output of the run.
+ * <p>
+ * A task looks its Stage up once and records every graph with stage.record(start, numOfBytes), which only updates
+ * striped counters and a log2 histogram, so concurrent tasks do not contend. Every record is also a JFR event
+ * (org.gai.Stage) when a recording enables it, e.g., -XX:StartFlightRecording.
+ * The metrics are reported as a periodic progress line, see startProgress(), and a JSON summary, see writeSummary().
+ * <p>
+ * Console lines are printed up to the verbosity level: VERBOSITY_QUIET only prints the progress, VERBOSITY_NORMAL adds
+ * the run-level lines, VERBOSITY_VERBOSE adds the per-file and per-generator lines.
+ */
+public class Metrics {
+    public static final String GENERATE = "generate";
+    public static final String WRITE = "write";
+    public static final String AUGMENT = "augment";
+    public static final String PROPERTIES = "properties";
+    public static final String PROMPTS = "prompts";
+
+    public static final int VERBOSITY_QUIET = 0;
+    public static final int VERBOSITY_NORMAL = 1;
+    public static final int VERBOSITY_VERBOSE = 2;
+
+    // bucket b counts the latencies in [2^(b-1), 2^b) ns, bucket 0 the zero latencies
+    private static final int NUM_OF_BUCKETS = 64;
+
+    private static final Map<String, Stage> STAGES = new ConcurrentHashMap<>();
+    private static volatile int verbosity = VERBOSITY_NORMAL;
+    private static volatile long startNanos = System.nanoTime();
+
+    public static int getVerbosity() {
+        return verbosity;
+    }
+
+    public static void setVerbosity(int verbosity) {
+        if (verbosity < VERBOSITY_QUIET || verbosity > VERBOSITY_VERBOSE)
+            throw new IllegalArgumentException("Verbosity must be in [" + VERBOSITY_QUIET + ", " + VERBOSITY_VERBOSE + "]");
+        Metrics.verbosity = verbosity;
+    }
+
+    /**
+     * Prints the line if the verbosity is at least the given level
+     */
+    public static void println(int level, String line) {
+        if (verbosity >= level)
+            System.out.println(line);
+    }
+
+    /**
+     * Clears all metrics, the elapsed time of the run starts now
+     */
+    public static void reset() {
+        STAGES.clear();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * The stage of the graphs on n vertices of the given generator, generatorName == null for the exhaustively enumerated graphs
+     */
+    public static Stage getStage(String name, int n, String generatorName) {
+        String key = name + "/" + n + "/" + (generatorName == null ? "" : generatorName);
+        return STAGES.computeIfAbsent(key, k -> new Stage(name, n, generatorName));
+    }
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Prints the progress line every intervalSeconds, and once more when closed. Nothing is printed if intervalSeconds == 0
+     */
+    public static Closeable startProgress(long intervalSeconds) {
+        if (intervalSeconds == 0)
+            return () -> {
+            };
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> System.out.println(getProgress()), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return () -> {
+            executor.shutdownNow();
+            System.out.println(getProgress());
+        };
+    }
+
+    /**
+     * e.g., [12.0s] generate: 120000 (10000/s) | write: 120000 (10000/s), 3.2 MB | ...
+     */
+    public static String getProgress() {
+        double elapsed = getElapsedSeconds();
+        StringBuilder line = new StringBuilder(String.format("[%.1fs]", elapsed));
+        String separator = " ";
+        for (Map.Entry<String, long[]> stage : getStageTotals().entrySet()) {
+            long count = stage.getValue()[0], bytes = stage.getValue()[2];
+            line.append(separator).append(stage.getKey()).append(": ").append(count)
+                    .append(String.format(" (%.0f/s)", elapsed > 0 ? count / elapsed : 0));
+            if (bytes > 0)
+                line.append(String.format(", %.1f MB", bytes / 1e6));
+            separator = " | ";
+        }
+        return line.toString();
+    }
+
+    /**
+     * The totals of every stage over all (n, generator) pairs, and one entry per (stage, n, generator) with its
+     * count, time, latency percentiles (upper bounds of their log2 buckets), bytes and throughput
+     */
+    public static JsonObject getSummary() {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("elapsed_seconds", getElapsedSeconds());
+
+        JsonObject totals = new JsonObject();
+        for (Map.Entry<String, long[]> stage : getStageTotals().entrySet()) {
+            JsonObject total = new JsonObject();
+            total.addProperty("count", stage.getValue()[0]);
+            total.addProperty("seconds", stage.getValue()[1] / 1e9);
+            total.addProperty("bytes", stage.getValue()[2]);
+            totals.add(stage.getKey(), total);
+        }
+        summary.add("stages", totals);
+
+        List<Stage> stages = new ArrayList<>(STAGES.values());
+        stages.sort(Comparator.comparing((Stage s) -> s.name).thenComparingInt(s -> s.n)
+                .thenComparing(s -> s.generatorName == null ? "" : s.generatorName));
+        JsonArray details = new JsonArray();
+        for (Stage stage : stages)
+            details.add(stage.toJson());
+        summary.add("details", details);
+        return summary;
+    }
+
+    public static void writeSummary(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Files.writeString(path, new GsonBuilder().setPrettyPrinting().create().toJson(getSummary()) + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    // count, nanos and bytes of every stage name, in name order
+    private static Map<String, long[]> getStageTotals() {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (Stage stage : STAGES.values()) {
+            long[] total = totals.computeIfAbsent(stage.name, k -> new long[3]);
+            total[0] += stage.count.sum();
+            total[1] += stage.nanos.sum();
+            total[2] += stage.bytes.sum();
+        }
+        return totals;
+    }
+
+    /**
+     * The metrics of one (stage, n, generator), thread-safe
+     */
+    public static class Stage {
+        private final String name;
+        private final int n;
+        private final String generatorName;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(NUM_OF_BUCKETS);
+        private final LongAccumulator firstStart = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator lastEnd = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        private Stage(String name, int n, String generatorName) {
+            this.name = name;
+            this.n = n;
+            this.generatorName = generatorName;
+        }
+
+        /**
+         * Records one graph whose stage started at start (from Metrics.start()) and ended now,
+         * numOfBytes is the size of its (uncompressed) output, 0 if none
+         */
+        public void record(long start, long numOfBytes) {
+            long end = System.nanoTime();
+            long latency = Math.max(end - start, 0);
+            count.increment();
+            nanos.add(latency);
+            if (numOfBytes > 0)
+                bytes.add(numOfBytes);
+            histogram.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(latency), NUM_OF_BUCKETS - 1));
+            firstStart.accumulate(start);
+            lastEnd.accumulate(end);
+
+            StageEvent event = new StageEvent();
+            if (event.isEnabled()) {
+                event.stage = name;
+                event.n = n;
+                event.generator = generatorName;
+                event.latency = latency;
+                event.bytes = numOfBytes;
+                event.commit();
+            }
+        }
+
+        /**
+         * Wraps a sink so that its writes are recorded in this stage, null stays null
+         */
+        public GraphSink wrap(GraphSink sink) {
+            if (sink == null)
+                return null;
+            return new GraphSink() {
+                @Override
+                public void write(int graphId, String content) throws IOException {
+                    long start = start();
+                    sink.write(graphId, content);
+                    record(start, content.length());
+                }
+
+                @Override
+                public void close() throws IOException {
+                    sink.close();
+                }
+            };
+        }
+
+        // the upper bound in ns of the bucket of the given quantile
+        private long getPercentile(long total, double quantile) {
+            long rank = (long) Math.ceil(quantile * total), seen = 0;
+            for (int b = 0; b < NUM_OF_BUCKETS; b++) {
+                seen += histogram.get(b);
+                if (seen >= rank)
+                    return b == 0 ? 0 : 1L << Math.min(b, 62);
+            }
+            return Long.MAX_VALUE;
+        }
+
+        private JsonObject toJson() {
+            long total = count.sum(), totalNanos = nanos.sum();
+            JsonObject json = new JsonObject();
+            json.addProperty("stage", name);
+            json.addProperty("n", n);
+            json.addProperty("generator", generatorName == null ? "" : generatorName);
+            json.addProperty("count", total);
+            json.addProperty("seconds", totalNanos / 1e9);
+            json.addProperty("bytes", bytes.sum());
+            if (total == 0)
+                return json;
+            json.addProperty("mean_us", totalNanos / 1e3 / total);
+            json.addProperty("p50_us", getPercentile(total, 0.5) / 1e3);
+            json.addProperty("p90_us", getPercentile(total, 0.9) / 1e3);
+            json.addProperty("p99_us", getPercentile(total, 0.99) / 1e3);
+            double wallSeconds = (lastEnd.get() - firstStart.get()) / 1e9;
+            json.addProperty("graphs_per_second", wallSeconds > 0 ? total / wallSeconds : 0);
+            return json;
+        }
+    }
+
+    @Name("org.gai.Stage")
+    @Label("Graph Stage")
+    @Category("graphgen")
+    @Description("One graph through one stage of the generation")
+    @StackTrace(false)
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Vertices")
+        int n;
+
+        @Label("Generator")
+        String generator;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
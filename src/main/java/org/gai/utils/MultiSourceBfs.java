@@ -0,0 +1,94 @@
+package org.gai.utils;
+
+import java.util.Arrays;
+
+/**
+ * BFS from up to 64 sources at once: bit b of the masks of a vertex stands for the source b of the pass,
+ * so a level expands every search with one OR per edge of the frontier.
+ * <p>
+ * The parents block is 64 x |V| and is reused by every pass, so the shortest paths of a pass must be read
+ * before the next run(). Levels advance from the list of the vertices reached by the previous one, never by a scan of all the vertices.
+ */
+public class MultiSourceBfs {
+    public static final int MAX_SOURCES = 64;
+
+    private final CsrGraph g;
+    private final int[][] parents;
+    private final long[] seen, visit, next;
+    private int[] frontier, nextFrontier;
+
+    public MultiSourceBfs(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        this.g = g;
+        this.parents = new int[MAX_SOURCES][n];
+        this.seen = new long[n];
+        this.visit = new long[n];
+        this.next = new long[n];
+        this.frontier = new int[n];
+        this.nextFrontier = new int[n];
+    }
+
+    /**
+     * BFS from sources[first], ..., sources[last - 1], at most MAX_SOURCES of them, the source b being sources[first + b]
+     */
+    public void run(int[] sources, int first, int last) {
+        if (last - first > MAX_SOURCES)
+            throw new IllegalArgumentException("More than " + MAX_SOURCES + " sources in one pass");
+        Arrays.fill(seen, 0);
+        int size = 0;
+        for (int b = 0; b < last - first; b++) {
+            int s = sources[first + b];
+            if (visit[s] == 0)
+                frontier[size++] = s;
+            seen[s] |= 1L << b;
+            visit[s] |= 1L << b;
+            parents[b][s] = s;
+        }
+
+        while (size > 0) {
+            int nextSize = 0;
+            for (int a = 0; a < size; a++) {
+                int u = frontier[a];
+                for (int j = 0; j < g.degreeOf(u); j++) {
+                    int v = g.getNeighbor(u, j);
+                    long reached = visit[u] & ~seen[v] & ~next[v];
+                    if (reached == 0)
+                        continue;
+                    if (next[v] == 0)
+                        nextFrontier[nextSize++] = v;
+                    next[v] |= reached;
+                    for (long rest = reached; rest != 0; rest &= rest - 1)
+                        parents[Long.numberOfTrailingZeros(rest)][v] = u;
+                }
+            }
+            // a vertex may be in both lists, with disjoint bits, so the old level is cleared before the new one is set
+            for (int a = 0; a < size; a++)
+                visit[frontier[a]] = 0;
+            for (int a = 0; a < nextSize; a++) {
+                int v = nextFrontier[a];
+                seen[v] |= next[v];
+                visit[v] = next[v];
+                next[v] = 0;
+            }
+            int[] t = frontier;
+            frontier = nextFrontier;
+            nextFrontier = t;
+            size = nextSize;
+        }
+    }
+
+    /**
+     * Whether v is reachable from the source b of the last run
+     */
+    public boolean isReached(int b, int v) {
+        return (seen[v] >>> b & 1) != 0;
+    }
+
+    /**
+     * The predecessor of v on a shortest path from the source b of the last run (the first one found), the source itself for the source;
+     * only meaningful if isReached(b, v)
+     */
+    public int getParent(int b, int v) {
+        return parents[b][v];
+    }
+}
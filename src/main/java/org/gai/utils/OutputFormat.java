@@ -0,0 +1,6 @@
+package org.gai.utils;
+
+public enum OutputFormat {
+    LEGACY, // ./dataset/nxx/[generator/]graph_xxxxxx/graph_xxxxxx.csv, one folder and one file per graph
+    SHARD // ./dataset/nxx/[generator/]shard_xxxxxx.dat and .idx, GRAPHS_PER_SHARD graphs per shard
+}
@@ -0,0 +1,185 @@
+package org.gai.utils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Uniform samples without replacement of vertices and of unordered vertex pairs {u,v}, u != v,
+ * from four candidate sets: all the pairs, the absent edges of a graph, the pairs inside a component and the pairs across components.
+ * <p>
+ * The candidates are numbered row by row, a row holding the pairs of one vertex with the vertices after it in some order.
+ * A sample draws k distinct ranks among the candidates (Floyd's algorithm) and maps each rank to its pair
+ * by binary searches over the row counts, so it takes O(k log n) after an O(n + m log m) setup, and never rejects a draw.
+ * If there are at most k candidates, all of them are returned. Either way the pairs come in random order and orientation.
+ * <p>
+ * A sample is an int array of 2k entries, u0, v0, u1, v1, ...
+ */
+public class PairSampler {
+    private final SplittableRandom random;
+
+    public PairSampler(SplittableRandom random) {
+        this.random = random;
+    }
+
+    // the candidates of row r are the ranks [prefix[r], prefix[r + 1])
+    private interface Row {
+        // the other vertex of the pair of rank offset in the row
+        int select(int row, long offset);
+    }
+
+    /**
+     * min(k, n) distinct vertices among 0, 1, ..., n - 1
+     */
+    public int[] sampleVertices(int n, int k) {
+        long[] ranks = sampleRanks(n, k);
+        int[] vertices = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++)
+            vertices[i] = (int) ranks[i];
+        return vertices;
+    }
+
+    /**
+     * Pairs {u,v} of distinct vertices among 0, 1, ..., n - 1, row u holds the vertices greater than u
+     */
+    public int[] sampleVertexPairs(int n, int k) {
+        long[] prefix = new long[n + 1];
+        for (int u = 0; u < n; u++)
+            prefix[u + 1] = prefix[u] + n - 1 - u;
+        return samplePairs(prefix, k, (u, offset) -> (int) (u + 1 + offset));
+    }
+
+    /**
+     * Pairs {u,v} that are not edges of g, row u holds the non-neighbors of u greater than u
+     */
+    public int[] sampleAbsentEdges(CsrGraph g, int k) {
+        int n = g.getNumOfNodes();
+        // the neighbors of every vertex that are greater than it, sorted
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < g.getNumOfEdges(); e++)
+            offsets[Math.min(g.getEdgeSource(e), g.getEdgeTarget(e)) + 1]++;
+        for (int u = 0; u < n; u++)
+            offsets[u + 1] += offsets[u];
+        int[] higher = new int[g.getNumOfEdges()], next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < g.getNumOfEdges(); e++) {
+            int u = g.getEdgeSource(e), v = g.getEdgeTarget(e);
+            higher[next[Math.min(u, v)]++] = Math.max(u, v);
+        }
+        long[] prefix = new long[n + 1];
+        for (int u = 0; u < n; u++) {
+            Arrays.sort(higher, offsets[u], offsets[u + 1]);
+            prefix[u + 1] = prefix[u] + (n - 1 - u) - (offsets[u + 1] - offsets[u]);
+        }
+
+        // in row u, the neighbor higher[i] has higher[i] - (u + 1) - (i - offsets[u]) non-neighbors before it,
+        // so the non-neighbor of the given offset comes after the last neighbor with at most offset of them
+        return samplePairs(prefix, k, (u, offset) -> {
+            int low = offsets[u], high = offsets[u + 1] - 1, numOfBefore = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (higher[mid] - (u + 1) - (mid - offsets[u]) <= offset) {
+                    numOfBefore = mid - offsets[u] + 1;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return (int) (u + 1 + offset + numOfBefore);
+        });
+    }
+
+    /**
+     * Pairs {u,v} of vertices of the same component, componentOf[v] in [0, numOfComponents)
+     */
+    public int[] sampleIntraComponentPairs(int[] componentOf, int numOfComponents, int k) {
+        int[] start = new int[numOfComponents + 1];
+        int[] order = groupByComponent(componentOf, start);
+        // row a holds the vertices after order[a] in its component
+        long[] prefix = new long[order.length + 1];
+        for (int a = 0; a < order.length; a++)
+            prefix[a + 1] = prefix[a] + start[componentOf[order[a]] + 1] - 1 - a;
+        return samplePairs(order, prefix, k, (a, offset) -> order[(int) (a + 1 + offset)]);
+    }
+
+    /**
+     * Pairs {u,v} of vertices of different components, componentOf[v] in [0, numOfComponents)
+     */
+    public int[] sampleCrossComponentPairs(int[] componentOf, int numOfComponents, int k) {
+        int[] start = new int[numOfComponents + 1];
+        int[] order = groupByComponent(componentOf, start);
+        // row a holds the vertices of the components after the one of order[a]
+        long[] prefix = new long[order.length + 1];
+        for (int a = 0; a < order.length; a++)
+            prefix[a + 1] = prefix[a] + order.length - start[componentOf[order[a]] + 1];
+        return samplePairs(order, prefix, k, (a, offset) -> order[(int) (start[componentOf[order[a]] + 1] + offset)]);
+    }
+
+    // the vertices sorted by component, the component c is order[start[c]], ..., order[start[c + 1] - 1]
+    private static int[] groupByComponent(int[] componentOf, int[] start) {
+        for (int c : componentOf)
+            start[c + 1]++;
+        for (int c = 0; c + 1 < start.length; c++)
+            start[c + 1] += start[c];
+        int[] order = new int[componentOf.length], next = Arrays.copyOf(start, start.length);
+        for (int v = 0; v < componentOf.length; v++)
+            order[next[componentOf[v]]++] = v;
+        return order;
+    }
+
+    private int[] samplePairs(long[] prefix, int k, Row row) {
+        return samplePairs(null, prefix, k, row);
+    }
+
+    // rows are vertices, or positions in order if it is not null
+    private int[] samplePairs(int[] order, long[] prefix, int k, Row row) {
+        long[] ranks = sampleRanks(prefix[prefix.length - 1], k);
+        int[] pairs = new int[2 * ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            // the last row starting at or before the rank
+            int low = 0, high = prefix.length - 2;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (prefix[mid] <= ranks[i])
+                    low = mid;
+                else
+                    high = mid - 1;
+            }
+            int u = order == null ? low : order[low], v = row.select(low, ranks[i] - prefix[low]);
+            boolean swap = random.nextBoolean();
+            pairs[2 * i] = swap ? v : u;
+            pairs[2 * i + 1] = swap ? u : v;
+        }
+        return pairs;
+    }
+
+    // min(k, numOfCandidates) distinct ranks in [0, numOfCandidates), in random order
+    private long[] sampleRanks(long numOfCandidates, int k) {
+        long[] ranks;
+        if (k >= numOfCandidates) {
+            ranks = new long[(int) numOfCandidates];
+            for (int i = 0; i < ranks.length; i++)
+                ranks[i] = i;
+        } else {
+            // Floyd: for j = N - k, ..., N - 1, add a random rank of [0, j], or j itself if it is already in
+            Set<Long> chosen = new HashSet<>(2 * k);
+            ranks = new long[k];
+            int size = 0;
+            for (long j = numOfCandidates - k; j < numOfCandidates; j++) {
+                long t = random.nextLong(j + 1);
+                if (!chosen.add(t)) {
+                    t = j;
+                    chosen.add(j);
+                }
+                ranks[size++] = t;
+            }
+        }
+        for (int i = ranks.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long t = ranks[i];
+            ranks[i] = ranks[j];
+            ranks[j] = t;
+        }
+        return ranks;
+    }
+}
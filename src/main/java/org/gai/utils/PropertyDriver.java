@@ -0,0 +1,143 @@
+package org.gai.utils;
+
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the selected properties of every graph of ./dataset, legacy or sharded, plain or compressed.
+ * <p>
+ * The graphs are split into the units of DatasetUnit: the graph ids of one block of ShardedGraphWriter.GRAPHS_PER_SHARD in one folder,
+ * i.e., one shard of a sharded folder, or the graph_xxxxxx folders of the block with all their files (original and augmented).
+ * A unit streams one JSON line per graph, {"graph": path relative to ./dataset, properties...}, in path order and in the encoding of the options, to
+ * ./properties/[folder relative to ./dataset]/properties_xxxxxx.jsonl[.gz], the layout of the properties of GraphPipeline.
+ * The file is written under a temporary name and renamed once complete, so a file that exists is always whole:
+ * with the resume option the units whose file exists are skipped, otherwise they are computed again.
+ * The units run on a work-stealing pool of the given number of threads, and every graph is recorded in the properties stage of Metrics.
+ * <p>
+ * The units include the large graphs of ./dataset/large. Without the properties option, the graphs above the large threshold
+ * get the default set minus GraphProperties.QUADRATIC_PROPERTIES, whose output alone would be gigabytes per graph
+ * (|V| / 4 traversal orders of |V| vertices, |V| / 2 shortest paths); the properties given explicitly are computed on every graph.
+ */
+public class PropertyDriver {
+    public static final String DATASET_PATH = "./dataset";
+    // the default properties of the graphs above the large threshold
+    private static final Set<String> LARGE_GRAPH_PROPERTIES = difference(GraphProperties.PROPERTIES, GraphProperties.QUADRATIC_PROPERTIES);
+
+    public static void main(String[] args) {
+        run(GenerationOptions.parse(args));
+    }
+
+    public static void run(GenerationOptions options) {
+        Metrics.setVerbosity(options.getVerbosity());
+        Metrics.reset();
+        CompressionUtils.setCompressOutput(options.isCompressed());
+
+        Path dataset = Path.of(DATASET_PATH), output = Path.of(GraphPipeline.PROPERTIES_PATH);
+        List<DatasetUnit> units;
+        try {
+            units = DatasetUnit.list(dataset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<Runnable> tasks = new ArrayList<>();
+        int numOfSkipped = 0;
+        for (DatasetUnit unit : units) {
+            Path file = output.resolve(unit.getFolder()).resolve(CompressionUtils.getOutputName(String.format("properties_%06d.jsonl", unit.getBlock())));
+            if (options.isResume() && Files.exists(file)) {
+                numOfSkipped++;
+                continue;
+            }
+            tasks.add(() -> {
+                try {
+                    run(unit, dataset, file, options);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        Metrics.println(Metrics.VERBOSITY_NORMAL, "units: " + units.size() + ", skipped: " + numOfSkipped);
+
+        Closeable progress = Metrics.startProgress(options.getProgressInterval());
+        try {
+            runTasks(tasks, options.getNumOfThreads());
+        } finally {
+            try {
+                progress.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            Metrics.writeSummary(output.resolve("metrics.json"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // runs the tasks on a work-stealing pool and rethrows the first failure
+    static void runTasks(List<Runnable> tasks, int numOfThreads) {
+        ExecutorService executor = Executors.newWorkStealingPool(numOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks)
+                futures.add(executor.submit(task));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void run(DatasetUnit unit, Path dataset, Path file, GenerationOptions options) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CharArrayWriter buffer = new CharArrayWriter(); // the line of the current graph
+        try (Writer writer = CompressionUtils.newWriter(temporary)) {
+            unit.forEachGraph(dataset, (graphId, path, content) -> write(writer, buffer, path, FileUtils.parseCsrGraph(content), unit.getGeneratorName(), options));
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Metrics.println(Metrics.VERBOSITY_VERBOSE, "properties: " + file);
+    }
+
+    // the random choices of the properties of a graph only depend on the master seed and its path
+    private static void write(Writer writer, CharArrayWriter buffer, String path, CsrGraph g, String generatorName, GenerationOptions options) throws IOException {
+        long start = Metrics.start();
+        buffer.reset();
+        SplittableRandom random = RandomUtils.getRandom(options.getMasterSeed(), g.getNumOfNodes(), path, 0);
+        GraphProperties.writeJsonLine(buffer, path, g, getProperties(options, g.getNumOfNodes()), options.getPropertyEncoding(), random,
+                options.getLargeGraphThreshold());
+        Metrics.getStage(Metrics.PROPERTIES, g.getNumOfNodes(), generatorName).record(start, buffer.size());
+        buffer.writeTo(writer);
+    }
+
+    /**
+     * The properties of a graph of numOfNodes vertices, also used by GraphPipeline: the ones of the options if they were set,
+     * otherwise the default set, without GraphProperties.QUADRATIC_PROPERTIES above the large threshold
+     */
+    static Set<String> getProperties(GenerationOptions options, int numOfNodes) {
+        return options.isPropertiesSet() || numOfNodes <= options.getLargeGraphThreshold() ? options.getProperties() : LARGE_GRAPH_PROPERTIES;
+    }
+
+    private static Set<String> difference(Set<String> a, Set<String> b) {
+        Set<String> difference = new HashSet<>(a);
+        difference.removeAll(b);
+        return Set.copyOf(difference);
+    }
+}
@@ -0,0 +1,332 @@
+package org.gai.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The output of GraphProperties: the JsonWriter calls, plus the values whose form depends on the encoding.
+ * <p>
+ * LEGACY : a vertex pair is the string "(u,v)", a sequence of vertices the string "(v0,v1,...)", "" if empty,
+ * and an infinite length the string "inf"
+ * COMPACT : a vertex pair is the array [u,v], a sequence the array [v0,v1,...], and an infinite length null
+ * <p>
+ * of(JsonWriter, encoding) streams the properties to the writer as they are computed, without building any JsonElement,
+ * of(JsonObject) adds them to the object, as GraphProperties always did. The IOExceptions of the writer are rethrown unchecked.
+ */
+public abstract class PropertyWriter {
+    public enum Encoding {
+        LEGACY,
+        COMPACT
+    }
+
+    private final Encoding encoding;
+    private final StringBuilder sequence = new StringBuilder();
+    private final int[] pair = new int[2];
+
+    private PropertyWriter(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Writes the properties as members of the current object of the writer
+     */
+    public static PropertyWriter of(JsonWriter writer, Encoding encoding) {
+        return new Stream(writer, encoding);
+    }
+
+    /**
+     * Adds the properties to the object, in the legacy encoding
+     */
+    public static PropertyWriter of(JsonObject object) {
+        return new Tree(object, Encoding.LEGACY);
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public abstract PropertyWriter name(String name);
+
+    public abstract PropertyWriter beginArray();
+
+    public abstract PropertyWriter endArray();
+
+    public abstract PropertyWriter beginObject();
+
+    public abstract PropertyWriter endObject();
+
+    public abstract PropertyWriter value(long value);
+
+    public abstract PropertyWriter value(double value);
+
+    public abstract PropertyWriter value(boolean value);
+
+    public abstract PropertyWriter value(String value);
+
+    public abstract PropertyWriter nullValue();
+
+    public PropertyWriter pair(int u, int v) {
+        if (encoding == Encoding.COMPACT) {
+            pair[0] = u;
+            pair[1] = v;
+            return intArray(pair, 2);
+        }
+        return value("(" + u + "," + v + ")");
+    }
+
+    /**
+     * The first length vertices of the array
+     */
+    public PropertyWriter sequence(int[] vertices, int length) {
+        if (encoding == Encoding.COMPACT)
+            return intArray(vertices, length);
+        if (length == 0)
+            return value("");
+        return value(format(vertices, length, '(', ')'));
+    }
+
+    public PropertyWriter sequence(int[] vertices) {
+        return sequence(vertices, vertices.length);
+    }
+
+    public PropertyWriter infinity() {
+        return encoding == Encoding.COMPACT ? nullValue() : value("inf");
+    }
+
+    /**
+     * The first length values as an array of numbers
+     */
+    protected PropertyWriter intArray(int[] values, int length) {
+        beginArray();
+        for (int i = 0; i < length; i++)
+            value(values[i]);
+        return endArray();
+    }
+
+    // e.g., (0,1,2), the text is built in a buffer reused by all the calls
+    String format(int[] values, int length, char open, char close) {
+        sequence.setLength(0);
+        sequence.append(open);
+        for (int i = 0; i < length; i++)
+            sequence.append(values[i]).append(',');
+        if (length == 0)
+            sequence.append(close);
+        else
+            sequence.setCharAt(sequence.length() - 1, close);
+        return sequence.toString();
+    }
+
+    private static class Stream extends PropertyWriter {
+        private final JsonWriter writer;
+
+        private Stream(JsonWriter writer, Encoding encoding) {
+            super(encoding);
+            this.writer = writer;
+        }
+
+        @Override
+        public PropertyWriter name(String name) {
+            try {
+                writer.name(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter beginArray() {
+            try {
+                writer.beginArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter endArray() {
+            try {
+                writer.endArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter beginObject() {
+            try {
+                writer.beginObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter endObject() {
+            try {
+                writer.endObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter value(long value) {
+            try {
+                writer.value(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter value(double value) {
+            try {
+                writer.value(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter value(boolean value) {
+            try {
+                writer.value(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter value(String value) {
+            try {
+                writer.value(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter nullValue() {
+            try {
+                writer.nullValue();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        // the whole array as one raw JSON value, rather than one string per number
+        @Override
+        protected PropertyWriter intArray(int[] values, int length) {
+            try {
+                writer.jsonValue(format(values, length, '[', ']'));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+    }
+
+    // builds the elements under the root object, the innermost open array or object is on top of the stack
+    private static class Tree extends PropertyWriter {
+        private final Deque<JsonElement> stack = new ArrayDeque<>();
+        private String name;
+
+        private Tree(JsonObject root, Encoding encoding) {
+            super(encoding);
+            stack.push(root);
+        }
+
+        private PropertyWriter add(JsonElement element) {
+            JsonElement parent = stack.peek();
+            if (parent instanceof JsonObject) {
+                if (name == null)
+                    throw new IllegalStateException("Missing name of the member");
+                ((JsonObject) parent).add(name, element);
+                name = null;
+            } else {
+                ((JsonArray) parent).add(element);
+            }
+            return this;
+        }
+
+        @Override
+        public PropertyWriter name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public PropertyWriter beginArray() {
+            JsonArray array = new JsonArray();
+            add(array);
+            stack.push(array);
+            return this;
+        }
+
+        @Override
+        public PropertyWriter endArray() {
+            if (!(stack.pop() instanceof JsonArray))
+                throw new IllegalStateException("No open array");
+            return this;
+        }
+
+        @Override
+        public PropertyWriter beginObject() {
+            JsonObject object = new JsonObject();
+            add(object);
+            stack.push(object);
+            return this;
+        }
+
+        @Override
+        public PropertyWriter endObject() {
+            if (stack.size() == 1 || !(stack.pop() instanceof JsonObject))
+                throw new IllegalStateException("No open object");
+            return this;
+        }
+
+        @Override
+        public PropertyWriter value(long value) {
+            return add(new JsonPrimitive(value));
+        }
+
+        @Override
+        public PropertyWriter value(double value) {
+            return add(new JsonPrimitive(value));
+        }
+
+        @Override
+        public PropertyWriter value(boolean value) {
+            return add(new JsonPrimitive(value));
+        }
+
+        @Override
+        public PropertyWriter value(String value) {
+            return add(new JsonPrimitive(value));
+        }
+
+        @Override
+        public PropertyWriter nullValue() {
+            return add(JsonNull.INSTANCE);
+        }
+    }
+}
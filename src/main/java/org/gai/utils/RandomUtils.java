@@ -0,0 +1,27 @@
+package org.gai.utils;
+
+import java.util.SplittableRandom;
+
+public class RandomUtils {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Returns the random stream of graph number index of the given generator on n vertices.
+     * The stream only depends on (masterSeed, n, generatorName, index), so every graph can be generated
+     * independently of the others, on any thread or machine, and still be the same for the same master seed.
+     */
+    public static SplittableRandom getRandom(long masterSeed, int n, String generatorName, int index) {
+        long h = mix64(masterSeed);
+        h = mix64(h + GOLDEN_GAMMA * n);
+        h = mix64(h + GOLDEN_GAMMA * generatorName.hashCode());
+        h = mix64(h + GOLDEN_GAMMA * index);
+        return new SplittableRandom(h);
+    }
+
+    // the finalizer of SplitMix64
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
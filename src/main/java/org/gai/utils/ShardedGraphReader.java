@@ -0,0 +1,156 @@
+package org.gai.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.gai.utils.ShardedGraphWriter.*;
+
+/**
+ * Random access to the graphs written by ShardedGraphWriter, plain or compressed
+ */
+public class ShardedGraphReader {
+
+    public static boolean isSharded(Path folder) {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.anyMatch(p -> p.getFileName().toString().endsWith(".idx"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the serialized graph, or null if the graph is not in the folder
+     */
+    public static String readGraph(Path folder, int graphId) throws IOException {
+        int shard = getShard(graphId);
+        Path indexPath = getIndexPath(folder, shard);
+        if (!Files.exists(indexPath))
+            return null;
+
+        long offset = -1;
+        int length = 0;
+        try (RandomAccessFile index = new RandomAccessFile(indexPath.toFile(), "r")) {
+            // entries are sorted by graph id, but ids may be missing, e.g., removed duplicates
+            long low = 0, high = index.length() / INDEX_ENTRY_SIZE - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                index.seek(mid * INDEX_ENTRY_SIZE);
+                int id = index.readInt();
+                if (id < graphId) {
+                    low = mid + 1;
+                } else if (id > graphId) {
+                    high = mid - 1;
+                } else {
+                    offset = index.readLong();
+                    length = index.readInt();
+                    break;
+                }
+            }
+        }
+        if (offset < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        try (RandomAccessFile data = new RandomAccessFile(getDataPath(folder, shard).toFile(), "r")) {
+            data.seek(offset);
+            data.readFully(bytes);
+        }
+        if (!CompressionUtils.isGzip(bytes))
+            return new String(bytes, StandardCharsets.UTF_8);
+        return readFromBlock(CompressionUtils.gunzip(bytes), graphId);
+    }
+
+    /**
+     * Passes the graphs with ids in [fromId, toId] to the action in increasing id order, reading every shard at once
+     */
+    public static void forEachGraph(Path folder, int fromId, int toId, BiConsumer<Integer, String> action) throws IOException {
+        for (int shard = getShard(fromId); shard <= getShard(toId); shard++) {
+            Path indexPath = getIndexPath(folder, shard);
+            if (!Files.exists(indexPath))
+                continue;
+            ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            byte[] data = Files.readAllBytes(getDataPath(folder, shard));
+
+            long blockOffset = -1;
+            byte[] block = null;
+            for (int pos = 0; pos + INDEX_ENTRY_SIZE <= index.limit(); pos += INDEX_ENTRY_SIZE) {
+                int id = index.getInt(pos);
+                if (id < fromId || id > toId)
+                    continue;
+                int offset = (int) index.getLong(pos + Integer.BYTES);
+                int length = index.getInt(pos + Integer.BYTES + Long.BYTES);
+                if (!CompressionUtils.isGzip(data, offset, length)) {
+                    action.accept(id, new String(data, offset, length, StandardCharsets.UTF_8));
+                    continue;
+                }
+                // the graphs of a block share its index entry, inflate it once
+                if (offset != blockOffset) {
+                    block = CompressionUtils.gunzip(Arrays.copyOfRange(data, offset, offset + length));
+                    blockOffset = offset;
+                }
+                action.accept(id, readFromBlock(block, id));
+            }
+        }
+    }
+
+    // scans the (graph id, length, content) records of an inflated block of a compressed shard
+    private static String readFromBlock(byte[] block, int graphId) throws IOException {
+        DataInputStream records = new DataInputStream(new ByteArrayInputStream(block));
+        while (records.available() > 0) {
+            int id = records.readInt();
+            int length = records.readInt();
+            if (id == graphId) {
+                byte[] bytes = new byte[length];
+                records.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            records.skipBytes(length);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ids of all graphs in the folder, in increasing order
+     */
+    public static List<Integer> listGraphIds(Path folder) throws IOException {
+        List<Path> indexPaths;
+        try (Stream<Path> files = Files.list(folder)) {
+            indexPaths = files.filter(p -> p.getFileName().toString().endsWith(".idx"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        List<Integer> graphIds = new ArrayList<>();
+        for (Path indexPath : indexPaths)
+            addGraphIds(indexPath, graphIds);
+        return graphIds;
+    }
+
+    /**
+     * Returns the ids of the graphs of one shard of the folder, in increasing order, none if the shard does not exist
+     */
+    public static List<Integer> listGraphIds(Path folder, int shard) throws IOException {
+        List<Integer> graphIds = new ArrayList<>();
+        Path indexPath = getIndexPath(folder, shard);
+        if (Files.exists(indexPath))
+            addGraphIds(indexPath, graphIds);
+        return graphIds;
+    }
+
+    private static void addGraphIds(Path indexPath, List<Integer> graphIds) throws IOException {
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        for (int pos = 0; pos + INDEX_ENTRY_SIZE <= index.limit(); pos += INDEX_ENTRY_SIZE)
+            graphIds.add(index.getInt(pos));
+    }
+}
@@ -0,0 +1,134 @@
+package org.gai.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Packs the graphs of one folder into shard files instead of one folder and one file per graph.
+ * <p>
+ * Graph i belongs to shard (i - 1) / GRAPHS_PER_SHARD. A shard consists of
+ * shard_xxxxxx.dat : the serialized graphs, appended one after the other
+ * shard_xxxxxx.idx : one INDEX_ENTRY_SIZE bytes entry (graph id, offset, length) per graph, in increasing id order
+ * <p>
+ * A shard is rewritten from scratch the first time one of its graphs is written, so a shard must be written by a single writer.
+ * <p>
+ * Compressed shards keep the same files, but the .dat file is a sequence of gzip blocks of up to GRAPHS_PER_BLOCK graphs,
+ * each block holding (graph id, length, content) records. The index entry of a graph points to its whole block,
+ * so random access inflates one block, and the reader tells blocks from plain content by the gzip magic bytes.
+ */
+public class ShardedGraphWriter implements GraphSink {
+    public static final int GRAPHS_PER_SHARD = 10_000;
+    public static final int INDEX_ENTRY_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    public static final int GRAPHS_PER_BLOCK = 64;
+
+    private final Path folder;
+    private final boolean compressed;
+    private int shard = -1;
+    private int lastGraphId;
+    private long offset;
+    private OutputStream data;
+    private DataOutputStream index;
+
+    // the pending block of a compressed shard
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final DataOutputStream blockRecords = new DataOutputStream(block);
+    private final int[] blockGraphIds = new int[GRAPHS_PER_BLOCK];
+    private int blockSize;
+
+    public ShardedGraphWriter(Path folder) {
+        this(folder, false);
+    }
+
+    public ShardedGraphWriter(Path folder, boolean compressed) {
+        this.folder = folder;
+        this.compressed = compressed;
+    }
+
+    public static int getShard(int graphId) {
+        return (graphId - 1) / GRAPHS_PER_SHARD;
+    }
+
+    public static Path getDataPath(Path folder, int shard) {
+        return folder.resolve(String.format("shard_%06d.dat", shard));
+    }
+
+    public static Path getIndexPath(Path folder, int shard) {
+        return folder.resolve(String.format("shard_%06d.idx", shard));
+    }
+
+    @Override
+    public void write(int graphId, String content) throws IOException {
+        int graphShard = getShard(graphId);
+        if (graphShard != shard) {
+            close();
+            open(graphShard);
+        } else if (graphId <= lastGraphId) {
+            throw new IllegalArgumentException("Graph " + graphId + " is written after graph " + lastGraphId);
+        }
+
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        lastGraphId = graphId;
+        if (compressed) {
+            blockRecords.writeInt(graphId);
+            blockRecords.writeInt(bytes.length);
+            blockRecords.write(bytes);
+            blockGraphIds[blockSize++] = graphId;
+            if (blockSize == GRAPHS_PER_BLOCK)
+                flushBlock();
+            return;
+        }
+
+        data.write(bytes);
+        index.writeInt(graphId);
+        index.writeLong(offset);
+        index.writeInt(bytes.length);
+        offset += bytes.length;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockSize == 0)
+            return;
+        byte[] bytes = CompressionUtils.gzip(block.toByteArray());
+        data.write(bytes);
+        for (int i = 0; i < blockSize; i++) {
+            index.writeInt(blockGraphIds[i]);
+            index.writeLong(offset);
+            index.writeInt(bytes.length);
+        }
+        offset += bytes.length;
+        block.reset();
+        blockSize = 0;
+    }
+
+    private void open(int newShard) throws IOException {
+        Files.createDirectories(folder);
+        data = new BufferedOutputStream(Files.newOutputStream(getDataPath(folder, newShard)), 1 << 16);
+        index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getIndexPath(folder, newShard))));
+        shard = newShard;
+        offset = 0;
+        lastGraphId = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shard < 0)
+            return;
+        try {
+            flushBlock();
+            shard = -1;
+        } finally {
+            // the index is closed even if closing the data fails
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.gai.generate;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Near-complete samples must switch to Algorithm A instead of looping in the rejection of Algorithm D
+ */
+public class StreamingGnmGeneratorTest {
+
+    @Test(timeout = 60_000)
+    public void generatesNearCompleteGraphs() throws IOException {
+        assertDistinctEdges(100, 4949);
+        assertDistinctEdges(100, 4950);
+        assertDistinctEdges(1000, 499_000);
+        assertDistinctEdges(2000, 1_999_000);
+    }
+
+    @Test(timeout = 60_000)
+    public void generatesSparseAndTinyGraphs() throws IOException {
+        assertDistinctEdges(0, 0);
+        assertDistinctEdges(2, 1);
+        assertDistinctEdges(1000, 1);
+        assertDistinctEdges(100_000, 500_000);
+    }
+
+    // m pairs w < v of [0, n), in strictly increasing index order, hence distinct
+    private static void assertDistinctEdges(int n, long m) throws IOException {
+        long[] numOfEdges = new long[1], last = {-1};
+        new StreamingGnmGenerator(n, m, new SplittableRandom(n + m)).generate((w, v) -> {
+            assertTrue(0 <= w && w < v && v < n);
+            long index = (long) v * (v - 1) / 2 + w;
+            assertTrue(index > last[0]);
+            last[0] = index;
+            numOfEdges[0]++;
+        });
+        assertEquals(m, numOfEdges[0]);
+    }
+}
@@ -0,0 +1,66 @@
+package org.gai.utils;
+
+import org.jgrapht.GraphMetrics;
+import org.jgrapht.alg.connectivity.ConnectivityInspector;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The bitset algorithms against GraphMetrics and ConnectivityInspector, up to BitsetGraph.MAX_NODES vertices
+ */
+public class BitsetGraphTest {
+
+    @Test
+    public void matchesJgrapht() {
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(16, 1500, 0, BitsetGraph.MAX_NODES))
+            assertMatchesJgrapht(g);
+    }
+
+    @Test
+    public void matchesJgraphtOnFullWords() {
+        // 64 vertices use every bit of the masks, including the sign bit
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(64, 120, BitsetGraph.MAX_NODES, BitsetGraph.MAX_NODES))
+            assertMatchesJgrapht(g);
+    }
+
+    private static void assertMatchesJgrapht(SimpleGraph<Integer, DefaultEdge> g) {
+        BitsetGraph bitset = new BitsetGraph(CsrGraph.fromGraph(g));
+        int n = g.vertexSet().size();
+        String graph = g.toString();
+
+        // same partition, numbered by smallest vertex
+        int[] componentOf = bitset.getComponents();
+        List<Set<Integer>> components = new ConnectivityInspector<>(g).connectedSets();
+        int numOfComponents = 0;
+        for (int v = 0; v < n; v++) {
+            assertTrue(graph, componentOf[v] <= numOfComponents);
+            if (componentOf[v] == numOfComponents)
+                numOfComponents++;
+        }
+        assertEquals(graph, components.size(), numOfComponents);
+        for (Set<Integer> component : components) {
+            int c = componentOf[component.iterator().next()];
+            for (int v : component)
+                assertEquals(graph, c, componentOf[v]);
+        }
+
+        // -1 stands for an infinite eccentricity
+        double diameter = 0, radius = n == 0 ? 0 : Double.POSITIVE_INFINITY;
+        for (int eccentricity : bitset.getEccentricities()) {
+            double e = eccentricity < 0 ? Double.POSITIVE_INFINITY : eccentricity;
+            diameter = Math.max(diameter, e);
+            radius = Math.min(radius, e);
+        }
+        assertEquals(graph, GraphMetrics.getDiameter(g), diameter, 0);
+        assertEquals(graph, GraphMetrics.getRadius(g), radius, 0);
+        assertEquals(graph, GraphMetrics.getGirth(g), bitset.getGirth());
+        assertEquals(graph, GraphMetrics.getNumberOfTriangles(g), bitset.countTriangles());
+    }
+}
@@ -0,0 +1,209 @@
+package org.gai.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jgrapht.GraphMetrics;
+import org.jgrapht.GraphPath;
+import org.jgrapht.GraphTests;
+import org.jgrapht.alg.connectivity.ConnectivityInspector;
+import org.jgrapht.alg.flow.EdmondsKarpMFImpl;
+import org.jgrapht.alg.shortestpath.BFSShortestPath;
+import org.jgrapht.alg.spanning.KruskalMinimumSpanningTree;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleDirectedGraph;
+import org.jgrapht.graph.SimpleDirectedWeightedGraph;
+import org.jgrapht.graph.SimpleGraph;
+import org.jgrapht.traverse.BreadthFirstIterator;
+import org.jgrapht.traverse.DepthFirstIterator;
+import org.jgrapht.traverse.TopologicalOrderIterator;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every property of GraphProperties against the jgrapht computation it replaced, in the legacy encoding:
+ * the deterministic ones must be identical (including the traversal and topological orders, which depend on the edge order),
+ * the sampled ones (absent edges, connectivity queries, shortest paths, maximum flows) must be valid answers.
+ */
+public class GraphPropertiesTest {
+
+    @Test
+    public void matchesJgraphtOnSmallGraphs() {
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(15, 1500, 0, 12))
+            assertMatchesJgrapht(g);
+    }
+
+    @Test
+    public void matchesJgraphtAboveBitsetGraphs() {
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(16, 30, BitsetGraph.MAX_NODES + 1, 90))
+            assertMatchesJgrapht(g);
+    }
+
+    private static void assertMatchesJgrapht(SimpleGraph<Integer, DefaultEdge> g) {
+        int n = g.vertexSet().size(), m = g.edgeSet().size();
+        JsonObject p = new JsonObject();
+        new GraphProperties(CsrGraph.fromGraph(g), PropertyWriter.of(p), new SplittableRandom(n * 31L + m))
+                .computeAll(GraphProperties.PROPERTIES);
+        String graph = g.toString();
+
+        assertEquals(graph, n, p.get(GraphProperties.N_C).getAsInt());
+        assertEquals(graph, m, p.get(GraphProperties.E_C).getAsInt());
+
+        // components by smallest vertex, vertices in increasing order
+        ConnectivityInspector<Integer, DefaultEdge> inspector = new ConnectivityInspector<>(g);
+        List<TreeSet<Integer>> components = new ArrayList<>();
+        for (Set<Integer> component : inspector.connectedSets())
+            components.add(new TreeSet<>(component));
+        components.sort(Comparator.comparing(TreeSet::first));
+        JsonArray expectedComponents = new JsonArray();
+        for (TreeSet<Integer> component : components) {
+            JsonArray vertices = new JsonArray();
+            component.forEach(vertices::add);
+            expectedComponents.add(vertices);
+        }
+        assertEquals(graph, components.size(), p.get(GraphProperties.NUM_CC).getAsInt());
+        assertEquals(graph, expectedComponents, p.get(GraphProperties.CC));
+
+        // KruskalMinimumSpanningTree returns a HashSet, so only the set of edges is comparable
+        Set<String> expectedTree = new HashSet<>();
+        for (DefaultEdge e : new KruskalMinimumSpanningTree<>(g).getSpanningTree().getEdges())
+            expectedTree.add("(" + g.getEdgeSource(e) + "," + g.getEdgeTarget(e) + ")");
+        JsonArray tree = p.getAsJsonArray(GraphProperties.S_T);
+        assertEquals(graph, expectedTree.size(), tree.size());
+        for (JsonElement e : tree)
+            assertTrue(graph, expectedTree.contains(e.getAsString()));
+
+        assertTraversalOrders(g, p.getAsJsonArray(GraphProperties.BFS_O), s -> new BreadthFirstIterator<>(g, s));
+        assertTraversalOrders(g, p.getAsJsonArray(GraphProperties.DFS_O), s -> new DepthFirstIterator<>(g, s));
+
+        boolean cyclic = n > 0 && !GraphTests.isForest(g); // isForest is false on the empty graph
+        assertEquals(graph, cyclic, p.get(GraphProperties.CYC_C).getAsBoolean());
+        // each edge oriented from its source to its target
+        SimpleDirectedGraph<Integer, DefaultEdge> directed = new SimpleDirectedGraph<>(DefaultEdge.class);
+        for (int v = 0; v < n; v++)
+            directed.addVertex(v);
+        for (DefaultEdge e : g.edgeSet())
+            directed.addEdge(g.getEdgeSource(e), g.getEdgeTarget(e));
+        assertEquals(graph, cyclic ? "" : sequence(new TopologicalOrderIterator<>(directed)), p.get(GraphProperties.TOPO_O).getAsString());
+
+        assertEquals(graph, length(GraphMetrics.getDiameter(g)), p.get(GraphProperties.DIAMETER));
+        assertEquals(graph, length(GraphMetrics.getRadius(g)), p.get(GraphProperties.RADIUS));
+        int girth = GraphMetrics.getGirth(g);
+        assertEquals(graph, girth == Integer.MAX_VALUE ? new JsonPrimitive("inf") : new JsonPrimitive(girth), p.get(GraphProperties.GIRTH));
+        assertEquals(graph, GraphMetrics.getNumberOfTriangles(g), p.get(GraphProperties.NUM_TRI).getAsLong());
+
+        assertSampledProperties(g, inspector, p);
+    }
+
+    private static void assertTraversalOrders(SimpleGraph<Integer, DefaultEdge> g, JsonArray orders, Function<Integer, Iterator<Integer>> getIterator) {
+        int n = g.vertexSet().size();
+        assertEquals(g.toString(), n == 0 ? 0 : Math.max(n / 4, 1), orders.size());
+        Set<Integer> starts = new HashSet<>();
+        for (JsonElement element : orders) {
+            JsonObject order = element.getAsJsonObject();
+            int start = order.get("start").getAsInt();
+            assertTrue(g.toString(), starts.add(start));
+            assertEquals(g.toString() + " from " + start, sequence(getIterator.apply(start)), order.get("order").getAsString());
+        }
+    }
+
+    private static void assertSampledProperties(SimpleGraph<Integer, DefaultEdge> g, ConnectivityInspector<Integer, DefaultEdge> inspector, JsonObject p) {
+        int n = g.vertexSet().size(), m = g.edgeSet().size();
+        String graph = g.toString();
+        long numOfPairs = (long) n * (n - 1) / 2, numOfIntraPairs = 0;
+        for (Set<Integer> component : inspector.connectedSets())
+            numOfIntraPairs += (long) component.size() * (component.size() - 1) / 2;
+
+        JsonArray absent = p.getAsJsonArray(GraphProperties.E_A);
+        assertEquals(graph, Math.min(m / 2, numOfPairs - m), absent.size());
+        for (int[] pair : distinctPairs(graph, absent))
+            assertFalse(graph, g.containsEdge(pair[0], pair[1]));
+
+        JsonArray connected = p.getAsJsonArray(GraphProperties.CC_T), disconnected = p.getAsJsonArray(GraphProperties.CC_F);
+        assertEquals(graph, Math.min(n / 2, numOfIntraPairs), connected.size());
+        assertEquals(graph, Math.min(n / 2, numOfPairs - numOfIntraPairs), disconnected.size());
+        for (int[] pair : distinctPairs(graph, connected))
+            assertTrue(graph, inspector.pathExists(pair[0], pair[1]));
+        for (int[] pair : distinctPairs(graph, disconnected))
+            assertFalse(graph, inspector.pathExists(pair[0], pair[1]));
+
+        JsonArray shortestPaths = p.getAsJsonArray(GraphProperties.S_P);
+        assertEquals(graph, Math.min(n / 2, numOfPairs), shortestPaths.size());
+        for (JsonElement element : shortestPaths) {
+            JsonObject query = element.getAsJsonObject();
+            int s = query.get("source").getAsInt(), t = query.get("target").getAsInt();
+            assertNotEquals(graph, s, t);
+            GraphPath<Integer, DefaultEdge> expected = BFSShortestPath.findPathBetween(g, s, t);
+            int[] path = vertices(query.get("path").getAsString());
+            if (expected == null) {
+                assertEquals(graph, "inf", query.get("length").getAsString());
+                assertEquals(graph, 0, path.length);
+                continue;
+            }
+            assertEquals(graph, expected.getLength(), query.get("length").getAsInt());
+            assertEquals(graph, expected.getLength() + 1, path.length);
+            assertEquals(graph, s, path[0]);
+            assertEquals(graph, t, path[path.length - 1]);
+            for (int i = 0; i + 1 < path.length; i++)
+                assertTrue(graph, g.containsEdge(path[i], path[i + 1]));
+        }
+
+        // unit capacities in both directions
+        SimpleDirectedWeightedGraph<Integer, DefaultWeightedEdge> network = new SimpleDirectedWeightedGraph<>(DefaultWeightedEdge.class);
+        for (int v = 0; v < n; v++)
+            network.addVertex(v);
+        for (DefaultEdge e : g.edgeSet()) {
+            network.addEdge(g.getEdgeSource(e), g.getEdgeTarget(e));
+            network.addEdge(g.getEdgeTarget(e), g.getEdgeSource(e));
+        }
+        EdmondsKarpMFImpl<Integer, DefaultWeightedEdge> maxFlow = new EdmondsKarpMFImpl<>(network);
+        JsonArray flows = p.getAsJsonArray(GraphProperties.MAX_FLOW);
+        assertEquals(graph, Math.min(n / 2, numOfPairs), flows.size());
+        for (JsonElement element : flows) {
+            JsonObject query = element.getAsJsonObject();
+            int s = query.get("source").getAsInt(), t = query.get("target").getAsInt();
+            assertEquals(graph, Math.round(maxFlow.getMaximumFlowValue(s, t)), query.get("flow").getAsLong());
+        }
+    }
+
+    // the pairs "(u,v)" of the array, u != v, no two of them the same unordered pair
+    private static List<int[]> distinctPairs(String graph, JsonArray array) {
+        List<int[]> pairs = new ArrayList<>();
+        Set<List<Integer>> seen = new HashSet<>();
+        for (JsonElement element : array) {
+            int[] pair = vertices(element.getAsString());
+            assertEquals(graph, 2, pair.length);
+            assertNotEquals(graph, pair[0], pair[1]);
+            assertTrue(graph, seen.add(List.of(Math.min(pair[0], pair[1]), Math.max(pair[0], pair[1]))));
+            pairs.add(pair);
+        }
+        return pairs;
+    }
+
+    // the legacy sequence "(v0,v1,...)", "" if empty, as GraphProperties wrote it before the CSR rewrite
+    private static String sequence(Iterator<Integer> iterator) {
+        StringJoiner joiner = new StringJoiner(",", "(", ")");
+        joiner.setEmptyValue("");
+        iterator.forEachRemaining(v -> joiner.add(String.valueOf(v)));
+        return joiner.toString();
+    }
+
+    private static int[] vertices(String sequence) {
+        if (sequence.isEmpty())
+            return new int[0];
+        return Arrays.stream(sequence.substring(1, sequence.length() - 1).split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static JsonPrimitive length(double d) {
+        return d == Double.POSITIVE_INFINITY ? new JsonPrimitive("inf") : new JsonPrimitive(d);
+    }
+}
@@ -0,0 +1,93 @@
+package org.gai.utils;
+
+import com.google.gson.JsonObject;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HamiltonPath against an exhaustive search on small graphs, and the witnesses it returns up to MAX_NODES vertices
+ */
+public class HamiltonPathTest {
+
+    @Test
+    public void matchesExhaustiveSearch() {
+        HamiltonPath hamiltonPath = new HamiltonPath();
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(18, 15000, 0, 9)) {
+            CsrGraph csr = CsrGraph.fromGraph(g);
+            int[] path = hamiltonPath.find(csr);
+            assertEquals(g.toString(), hasHamiltonPath(csr), path != null);
+            if (path != null)
+                assertHamiltonPath(csr, path);
+        }
+    }
+
+    @Test
+    public void returnsValidWitnessesUpToMaxNodes() {
+        HamiltonPath hamiltonPath = new HamiltonPath();
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(19, 600, 10, HamiltonPath.MAX_NODES)) {
+            CsrGraph csr = CsrGraph.fromGraph(g);
+            int[] path = hamiltonPath.find(csr);
+            if (path != null)
+                assertHamiltonPath(csr, path);
+        }
+        // complete graphs always have one
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(20, 60, 1, HamiltonPath.MAX_NODES)) {
+            if (g.edgeSet().size() == g.vertexSet().size() * (g.vertexSet().size() - 1) / 2)
+                assertNotNull(g.toString(), hamiltonPath.find(CsrGraph.fromGraph(g)));
+        }
+    }
+
+    @Test
+    public void marksLargerGraphsAsUnknown() {
+        for (SimpleGraph<Integer, DefaultEdge> g : TestGraphs.sample(21, 12, HamiltonPath.MAX_NODES + 1, HamiltonPath.MAX_NODES + 10)) {
+            JsonObject p = GraphProperties.select(CsrGraph.fromGraph(g), GraphProperties.HAMILTON_P);
+            assertTrue(g.toString(), p.has(GraphProperties.HAMILTON_P));
+            assertTrue(g.toString(), p.get(GraphProperties.HAMILTON_P).isJsonNull());
+        }
+    }
+
+    private static void assertHamiltonPath(CsrGraph g, int[] path) {
+        int n = g.getNumOfNodes();
+        assertEquals(n, path.length);
+        boolean[] visited = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            assertFalse(visited[path[i]]);
+            visited[path[i]] = true;
+            if (i > 0)
+                assertTrue(g.containsEdge(path[i - 1], path[i]));
+        }
+    }
+
+    private static boolean hasHamiltonPath(CsrGraph g) {
+        int n = g.getNumOfNodes();
+        for (int s = 0; s < n; s++) {
+            boolean[] visited = new boolean[n];
+            visited[s] = true;
+            if (canExtend(g, s, visited, 1))
+                return true;
+        }
+        return false;
+    }
+
+    // whether the path of numOfVisited vertices ending in u extends to all the vertices
+    private static boolean canExtend(CsrGraph g, int u, boolean[] visited, int numOfVisited) {
+        if (numOfVisited == g.getNumOfNodes())
+            return true;
+        for (int i = 0; i < g.degreeOf(u); i++) {
+            int v = g.getNeighbor(u, i);
+            if (visited[v])
+                continue;
+            visited[v] = true;
+            if (canExtend(g, v, visited, numOfVisited + 1))
+                return true;
+            visited[v] = false;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package org.gai.utils;
+
+import org.jgrapht.alg.util.Pair;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded random graphs on the vertices 0, 1, ..., n - 1 for the tests: G(n, p) graphs of every density,
+ * trees, forests (disconnected and acyclic), edgeless and complete graphs.
+ * The edges are added in random order and orientation, since the traversal and topological orders depend on both.
+ */
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     * count graphs with minNodes to maxNodes vertices, cycling through the kinds above
+     */
+    static List<SimpleGraph<Integer, DefaultEdge>> sample(long seed, int count, int minNodes, int maxNodes) {
+        Random random = new Random(seed);
+        List<SimpleGraph<Integer, DefaultEdge>> graphs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int n = minNodes + random.nextInt(maxNodes - minNodes + 1);
+            List<Pair<Integer, Integer>> edges;
+            switch (i % 6) {
+                case 0:
+                    edges = tree(random, n);
+                    break;
+                case 1:
+                    edges = forest(random, n);
+                    break;
+                case 2:
+                    edges = new ArrayList<>();
+                    break;
+                case 3:
+                    edges = gnp(random, n, 1);
+                    break;
+                default:
+                    // sparse ones are often disconnected, dense ones have many short cycles
+                    edges = gnp(random, n, random.nextDouble() * (random.nextBoolean() ? 4.0 / Math.max(n, 1) : 1));
+            }
+            graphs.add(toGraph(random, n, edges));
+        }
+        return graphs;
+    }
+
+    private static List<Pair<Integer, Integer>> gnp(Random random, int n, double p) {
+        List<Pair<Integer, Integer>> edges = new ArrayList<>();
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                if (random.nextDouble() < p)
+                    edges.add(Pair.of(u, v));
+            }
+        }
+        return edges;
+    }
+
+    // every vertex but the first is attached to an earlier one of a random relabeling
+    private static List<Pair<Integer, Integer>> tree(Random random, int n) {
+        List<Integer> labels = new ArrayList<>();
+        for (int v = 0; v < n; v++)
+            labels.add(v);
+        Collections.shuffle(labels, random);
+        List<Pair<Integer, Integer>> edges = new ArrayList<>();
+        for (int i = 1; i < n; i++)
+            edges.add(Pair.of(labels.get(random.nextInt(i)), labels.get(i)));
+        return edges;
+    }
+
+    private static List<Pair<Integer, Integer>> forest(Random random, int n) {
+        List<Pair<Integer, Integer>> edges = tree(random, n);
+        Collections.shuffle(edges, random);
+        return new ArrayList<>(edges.subList(0, edges.size() - Math.min(edges.size(), 1 + random.nextInt(3))));
+    }
+
+    private static SimpleGraph<Integer, DefaultEdge> toGraph(Random random, int n, List<Pair<Integer, Integer>> edges) {
+        Collections.shuffle(edges, random);
+        SimpleGraph<Integer, DefaultEdge> g = new SimpleGraph<>(DefaultEdge.class);
+        for (int v = 0; v < n; v++)
+            g.addVertex(v);
+        for (Pair<Integer, Integer> e : edges) {
+            if (random.nextBoolean())
+                g.addEdge(e.getFirst(), e.getSecond());
+            else
+                g.addEdge(e.getSecond(), e.getFirst());
+        }
+        return g;
+    }
+}